@@ -0,0 +1,159 @@
+package pokerserver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Command round trip through the blocking transport in each {@link ThreadMode},
+ * next to a number of idle connections, each holding its reader and writer
+ * threads. A seated client sends RESYNC and waits for the snapshot: the same
+ * path as an action, reader thread, session, outbound queue and writer thread,
+ * without waiting for a turn. {@link ThreadModeFootprint} measures what the
+ * idle connections cost in memory.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlockingTransportBenchmark {
+
+	// A ThreadMode name; JMH's generated code can not see the package private enum
+	@Param({ "PLATFORM", "VIRTUAL" })
+	String mode;
+
+	@Param({ "0", "1000" })
+	int idleConnections;
+
+	private PokerServer server;
+	private List<Socket> idle;
+	private Socket client;
+	private OutputStream out;
+	private BufferedReader in;
+
+	@Setup
+	public void setUp() throws IOException {
+		server = startServer(ThreadMode.valueOf(mode));
+		idle = openIdleConnections(server, idleConnections);
+		client = connect(server);
+		out = client.getOutputStream();
+		in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+		send("bench");
+		if (!readUntil("ASSIGNED").startsWith("ASSIGNED")) {
+			throw new IllegalStateException("Not seated");
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		client.close();
+		closeAll(idle);
+		server.stop();
+		server.shutdown();
+	}
+
+	@Benchmark
+	public String resyncRoundTrip() throws IOException {
+		send("RESYNC");
+		return readUntil("SNAPSHOT");
+	}
+
+	private void send(String line) throws IOException {
+		out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	private String readUntil(String prefix) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null && !line.startsWith(prefix)) {
+			// Skip broadcasts and deltas
+		}
+		if (line == null) {
+			throw new IOException("Server closed the connection");
+		}
+		return line;
+	}
+
+	/**
+	 * Starts a blocking transport server in the mode on a free loopback port.
+	 */
+	static PokerServer startServer(ThreadMode threadMode) throws IOException {
+		ServerConfig config = new ServerConfig();
+		config.transport = PokerServer.Transport.BLOCKING;
+		config.threadMode = threadMode;
+		PokerServer server = new PokerServer(config, new ServerLog());
+		int port;
+		try (ServerSocket probe = new ServerSocket(0)) {
+			port = probe.getLocalPort();
+		}
+		server.start(port);
+		return server;
+	}
+
+	static Socket connect(PokerServer server) throws IOException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (true) {
+			try {
+				Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+				socket.setTcpNoDelay(true);
+				return socket;
+			} catch (IOException e) {
+				// The accept thread may not be listening yet
+				if (System.nanoTime() > deadline) {
+					throw e;
+				}
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens connections that never send their ID, so each keeps a handler
+	 * blocked reading and a writer blocked on its empty queue.
+	 */
+	static List<Socket> openIdleConnections(PokerServer server, int count) throws IOException {
+		List<Socket> sockets = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			sockets.add(connect(server));
+		}
+		return sockets;
+	}
+
+	static void closeAll(List<Socket> sockets) {
+		for (Socket socket : sockets) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Closing anyway
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package pokerserver;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Building a {@link Deck}, and shuffling and dealing a nine handed hold'em
+ * hand with each kind of {@link RandomSource}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeckBenchmark {
+	// Two hole cards for nine players, three burns and five board cards
+	private static final int CARDS_PER_HAND = 9 * 2 + 3 + 5;
+
+	@Param({ "threadLocal", "splittable", "secure" })
+	String random;
+
+	private RandomSource source;
+	private Deck deck;
+
+	@Setup
+	public void setUp() {
+		switch (random) {
+		case "threadLocal":
+			source = RandomSource.threadLocal();
+			break;
+		case "splittable":
+			source = RandomSource.splittable(new SplittableRandom(42));
+			break;
+		default:
+			source = RandomSource.secure();
+		}
+		deck = new Deck(source);
+	}
+
+	@Benchmark
+	public Deck construct() {
+		return new Deck(source);
+	}
+
+	@Benchmark
+	public void shuffleAndDealIndices(Blackhole blackhole) {
+		deck.shuffle();
+		for (int i = 0; i < CARDS_PER_HAND; i++) {
+			blackhole.consume(deck.dealIndex());
+		}
+	}
+
+	@Benchmark
+	public void shuffleAndDealCards(Blackhole blackhole) {
+		deck.shuffle();
+		for (int i = 0; i < CARDS_PER_HAND; i++) {
+			blackhole.consume(deck.dealCard());
+		}
+	}
+}
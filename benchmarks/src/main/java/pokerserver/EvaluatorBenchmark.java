@@ -0,0 +1,88 @@
+package pokerserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluation of random hands of five to seven cards. Each invocation takes
+ * the next hand of a pool dealt up front with a fixed seed, so every run sees
+ * the same hands.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluatorBenchmark {
+	private static final int POOL_SIZE = 1 << 12;
+
+	@Param({ "5", "6", "7" })
+	int cardCount;
+
+	private long[] masks;
+	private List<List<Card>> lists;
+	// The old evaluator only takes five cards, so it gets the first five of each hand
+	private List<List<Card>> fiveCardLists;
+	private final PokerHandResolver resolver = new PokerHandResolver();
+	private PokerHandResolver cachedResolver;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Deck deck = new Deck(RandomSource.splittable(new SplittableRandom(42)));
+		masks = new long[POOL_SIZE];
+		lists = new ArrayList<>(POOL_SIZE);
+		fiveCardLists = new ArrayList<>(POOL_SIZE);
+		for (int i = 0; i < POOL_SIZE; i++) {
+			deck.shuffle();
+			List<Card> cards = new ArrayList<>(cardCount);
+			for (int n = 0; n < cardCount; n++) {
+				cards.add(deck.dealCard());
+			}
+			masks[i] = CardSet.of(cards);
+			lists.add(cards);
+			fiveCardLists.add(new ArrayList<>(cards.subList(0, 5)));
+		}
+		// Big enough to hold the whole pool, so every probe after the warmup hits
+		cachedResolver = new PokerHandResolver(HandStrengthCache.local(POOL_SIZE * 2));
+	}
+
+	private int nextIndex() {
+		return next++ & (POOL_SIZE - 1);
+	}
+
+	@Benchmark
+	public int sevenCardEvaluatorMask() {
+		return SevenCardEvaluator.evaluate(masks[nextIndex()]);
+	}
+
+	@Benchmark
+	public HandRank resolverBestRankList() {
+		return resolver.getBestRank(lists.get(nextIndex()));
+	}
+
+	@Benchmark
+	public int resolverCachedMask() {
+		return cachedResolver.getBestStrength(masks[nextIndex()]);
+	}
+
+	@Benchmark
+	public HandRank legacyHandEvaluator() {
+		return new HandEvaluator(fiveCardLists.get(nextIndex())).evaluateHand();
+	}
+}
@@ -0,0 +1,62 @@
+package pokerserver;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing client commands in both protocols, and encoding a server message
+ * once for each.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocolBenchmark {
+	private static final String ACTION_LINE = "ACTION RAISE 20";
+	private static final String STATE_LINE = "STATE 1234 CHIPS 3 195";
+
+	private final Command command = new Command();
+	private ByteBuffer actionFrame;
+
+	@Setup
+	public void setUp() {
+		actionFrame = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_LENGTH);
+		BinaryProtocol.encodeCommand(actionFrame, new Command().set(Command.ACTION, ActionType.RAISE, 20, null));
+		actionFrame.flip();
+	}
+
+	@Benchmark
+	public Command parseTextAction() {
+		return command.parseLine(ACTION_LINE);
+	}
+
+	@Benchmark
+	public Command decodeBinaryAction() {
+		actionFrame.rewind();
+		BinaryProtocol.decode(actionFrame, command);
+		return command;
+	}
+
+	@Benchmark
+	public byte[] encodeTextMessage() {
+		return new OutboundMessage(STATE_LINE).getTextBytes();
+	}
+
+	@Benchmark
+	public ByteBuffer encodeBinaryMessage() {
+		return new OutboundMessage(STATE_LINE).getBinaryFrame();
+	}
+}
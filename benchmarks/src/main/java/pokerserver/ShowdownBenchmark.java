@@ -0,0 +1,124 @@
+package pokerserver;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding the winners of a showdown between two to nine players: one
+ * evaluation per player, the bulk call {@link EquityCalculator} makes for
+ * every runout, and the strengths {@link PokerGame} tracks street by street.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShowdownBenchmark {
+	private static final int POOL_SIZE = 1 << 10;
+
+	@Param({ "2", "3", "4", "5", "6", "7", "8", "9" })
+	int players;
+
+	private long[] boards;
+	private long[][] hands;
+	private final PokerHandResolver resolver = new PokerHandResolver();
+	private int[] strengths;
+	private int[] winners;
+	private HandTracker[] trackers;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Deck deck = new Deck(RandomSource.splittable(new SplittableRandom(42)));
+		boards = new long[POOL_SIZE];
+		hands = new long[POOL_SIZE][players];
+		for (int i = 0; i < POOL_SIZE; i++) {
+			deck.shuffle();
+			for (int p = 0; p < players; p++) {
+				hands[i][p] = CardSet.bitOf(deck.dealIndex()) | CardSet.bitOf(deck.dealIndex());
+			}
+			for (int n = 0; n < 5; n++) {
+				boards[i] |= CardSet.bitOf(deck.dealIndex());
+			}
+		}
+		strengths = new int[players];
+		winners = new int[players];
+		trackers = new HandTracker[players];
+		for (int p = 0; p < players; p++) {
+			trackers[p] = new HandTracker();
+		}
+	}
+
+	/**
+	 * One evaluation of hole cards plus board per player, counting the ties.
+	 */
+	@Benchmark
+	public int perPlayer() {
+		int index = next++ & (POOL_SIZE - 1);
+		long board = boards[index];
+		int best = -1;
+		int winnerCount = 0;
+		for (long hand : hands[index]) {
+			int strength = resolver.getBestStrength(hand | board);
+			if (strength > best) {
+				best = strength;
+				winnerCount = 1;
+			} else if (strength == best) {
+				winnerCount++;
+			}
+		}
+		return winnerCount;
+	}
+
+	/**
+	 * Every hand against the board in one call, splitting the board once.
+	 */
+	@Benchmark
+	public int evaluateAll() {
+		int index = next++ & (POOL_SIZE - 1);
+		return resolver.resolveShowdown(boards[index], hands[index], strengths, winners);
+	}
+
+	/**
+	 * Feeds the hole cards and then every board card to each player's
+	 * {@link HandTracker}, which is the whole cost a hand pays for its strengths.
+	 */
+	@Benchmark
+	public int tracked() {
+		int index = next++ & (POOL_SIZE - 1);
+		long[] table = hands[index];
+		int best = -1;
+		int winnerCount = 0;
+		for (int p = 0; p < players; p++) {
+			HandTracker tracker = trackers[p];
+			tracker.reset();
+			for (long cards = table[p]; cards != 0; cards &= cards - 1) {
+				tracker.add(Long.lowestOneBit(cards));
+			}
+			for (long cards = boards[index]; cards != 0; cards &= cards - 1) {
+				tracker.add(Long.lowestOneBit(cards));
+			}
+			int strength = tracker.getStrength();
+			if (strength > best) {
+				best = strength;
+				winnerCount = 1;
+			} else if (strength == best) {
+				winnerCount++;
+			}
+		}
+		return winnerCount;
+	}
+}
@@ -0,0 +1,66 @@
+package pokerserver;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Platform against virtual threads for the blocking transport: starts one
+ * thread per client that blocks briefly, as a {@link ClientHandler} waiting
+ * for its socket does, and waits for all of them. On a JVM without virtual
+ * threads both modes run platform threads.
+ *
+ * This only measures starting threads. {@link BlockingTransportBenchmark}
+ * compares command round trips and {@link ThreadModeFootprint} the memory
+ * per idle connection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ThreadModeBenchmark {
+
+	// A ThreadMode name; JMH's generated code can not see the package private enum
+	@Param({ "PLATFORM", "VIRTUAL" })
+	String mode;
+
+	@Param({ "1000" })
+	int clients;
+
+	private ThreadFactory factory;
+
+	@Setup
+	public void setUp() {
+		factory = ThreadMode.valueOf(mode).factory("client");
+	}
+
+	@Benchmark
+	public void blockingClients() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(clients);
+		for (int i = 0; i < clients; i++) {
+			factory.newThread(() -> {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+	}
+}
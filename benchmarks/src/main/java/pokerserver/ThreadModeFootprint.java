@@ -0,0 +1,99 @@
+package pokerserver;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory per idle blocking connection in one {@link ThreadMode}, which JMH
+ * does not measure: heap used after a GC and the process RSS before and after
+ * opening the connections, each with its handler and writer threads. Platform
+ * thread stacks live outside the heap, so RSS is the figure to compare. Run
+ * each mode in a fresh JVM:
+ *
+ * <pre>
+ * java -cp benchmarks.jar pokerserver.ThreadModeFootprint PLATFORM 2000
+ * java -cp benchmarks.jar pokerserver.ThreadModeFootprint VIRTUAL 2000
+ * </pre>
+ *
+ * RSS is read from /proc, so it is only reported on Linux.
+ */
+public final class ThreadModeFootprint {
+	private static final long GB = 1L << 30;
+
+	private ThreadModeFootprint() {
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		ThreadMode mode = args.length > 0 ? ThreadMode.valueOf(args[0].toUpperCase(Locale.ROOT)) : ThreadMode.PLATFORM;
+		int connections = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+		PokerServer server = BlockingTransportBenchmark.startServer(mode);
+		// Warms up the accept and handler paths before the baseline
+		BlockingTransportBenchmark.closeAll(BlockingTransportBenchmark.openIdleConnections(server, 10));
+		Thread.sleep(500);
+		long heapBefore = usedHeap();
+		long rssBefore = rss();
+		int threadsBefore = threads.getThreadCount();
+
+		List<Socket> sockets = BlockingTransportBenchmark.openIdleConnections(server, connections);
+		// Every connection gets a reader, which starts its writer
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (mode == ThreadMode.PLATFORM && threads.getThreadCount() < threadsBefore + 2 * connections
+				&& System.nanoTime() < deadline) {
+			Thread.sleep(50);
+		}
+		Thread.sleep(1000);
+		long heapAfter = usedHeap();
+		long rssAfter = rss();
+
+		System.out.printf(Locale.ROOT, "%s threads%s, %d idle connections, %d live platform threads%n", mode,
+				mode == ThreadMode.VIRTUAL && !mode.isVirtualAvailable() ? " (unavailable, ran platform)" : "",
+				connections, threads.getThreadCount() - threadsBefore);
+		report("heap", heapAfter - heapBefore, connections);
+		if (rssBefore > 0 && rssAfter > 0) {
+			report("RSS", rssAfter - rssBefore, connections);
+		}
+
+		BlockingTransportBenchmark.closeAll(sockets);
+		server.stop();
+		server.shutdown();
+	}
+
+	private static void report(String what, long bytes, int connections) {
+		double perConnection = (double) bytes / connections;
+		System.out.printf(Locale.ROOT, "%-4s %8.1f KB per connection, %,.0f connections per GB%n", what,
+				perConnection / 1024, perConnection > 0 ? GB / perConnection : Double.POSITIVE_INFINITY);
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// Resident set size in bytes, -1 if unknown
+	private static long rss() {
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+				if (line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			// Not Linux
+		}
+		return -1;
+	}
+}
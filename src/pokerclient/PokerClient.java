@@ -30,6 +30,8 @@ public class PokerClient extends JFrame implements Runnable {
 	private String serverAddress;
 	private int serverPort;
 	private String id;
+	// Sequence number of the last table state applied, -1 while waiting for a snapshot
+	private int stateSequence = -1;
 
 	// PokerClient constructor
 	public PokerClient() {
@@ -225,29 +227,58 @@ public class PokerClient extends JFrame implements Runnable {
 
 	private void updateOtherSeats(String seatInfo) {
 		SwingUtilities.invokeLater(() -> {
+			// A snapshot lists every occupied seat, so the others are empty
+			for (int i = 0; i < 6; i++) {
+				setSeatLabel(i, null);
+			}
 			// Update player labels for occupied seats based on seat information
 			String[] seatData = seatInfo.split(";");
 			for (String data : seatData) {
-				if (!data.isEmpty()) {
+				if (!data.isEmpty() && !data.equals("-")) {
 					String[] seatInfoParts = data.split(",");
 					int seatIndex = Integer.parseInt(seatInfoParts[0].trim());
-					String playerId = seatInfoParts[1].trim();
-
-					Component seatLabel = tablePanel.getComponent(seatIndex);
-					if (seatLabel instanceof JLabel) {
-						JLabel label = (JLabel) seatLabel;
-						// Skip updating the label for the client's own seat
-						if (!playerId.equals(id)) {
-							label.setText(playerId);
-						} else {
-							label.setText("You");
-						}
-					}
+					setSeatLabel(seatIndex, seatInfoParts[1].trim());
 				}
 			}
 		});
 	}
 
+	private void setSeatLabel(int seatIndex, String playerId) {
+		Component seatLabel = tablePanel.getComponent(seatIndex);
+		if (seatLabel instanceof JLabel) {
+			JLabel label = (JLabel) seatLabel;
+			if (playerId == null) {
+				label.setText(" ");
+			} else if (!playerId.equals(id)) {
+				label.setText(playerId);
+			} else {
+				// The client's own seat
+				label.setText("You");
+			}
+		}
+	}
+
+	// Applies one sequence numbered table change, asking for a snapshot if one was missed
+	private void applyStateDelta(String[] delta) {
+		int sequence = Integer.parseInt(delta[1]);
+		if (stateSequence < 0 || sequence <= stateSequence) {
+			// Waiting for a snapshot, or already part of the last one
+			return;
+		}
+		if (sequence != stateSequence + 1) {
+			stateSequence = -1;
+			sendPlayerAction("RESYNC");
+			return;
+		}
+		stateSequence = sequence;
+		if (delta[2].equals("SEAT")) {
+			int seatIndex = Integer.parseInt(delta[3]);
+			String playerId = delta[4].equals("-") ? null : delta[4];
+			SwingUtilities.invokeLater(() -> setSeatLabel(seatIndex, playerId));
+		}
+		// Chips, board and pot are not shown yet
+	}
+
 	private void updateLog(String message) {
 		SwingUtilities.invokeLater(() -> {
 			logTextArea.append(message + "\n");
@@ -290,9 +321,13 @@ public class PokerClient extends JFrame implements Runnable {
 			}
 			while (true) {
 				response = in.readLine();
-				if (response.startsWith("SEATINFO")) {
-					String seatInfo = response.substring(8);
-					updateOtherSeats(seatInfo);
+				if (response.startsWith("SNAPSHOT")) {
+					// SNAPSHOT seq pot seats [cards]
+					String[] snapshot = response.split(" ");
+					stateSequence = Integer.parseInt(snapshot[1]);
+					updateOtherSeats(snapshot[3]);
+				} else if (response.startsWith("STATE")) {
+					applyStateDelta(response.split(" "));
 				} else if (response.startsWith("PLAYER_JOINED")) {
 					String playerName = response.split(" ")[1];
 					updateLog(playerName + " has joined the game.");
@@ -301,12 +336,8 @@ public class PokerClient extends JFrame implements Runnable {
 				} else if (response.startsWith("PLAYER_DISCONNECTED")) {
 					String playerName = response.split(" ")[1];
 					updateLog(playerName + " has left the game.");
-				} else if (response.startsWith("COMMUNITY_CARDS")) {
-					// Update community cards based on the server's message
 				} else if (response.startsWith("HOLE_CARDS")) {
 					// Update player hole cards based on the server's message
-				} else if (response.startsWith("POT_SIZE")) {
-					// Update the pot size label based on the server's message
 				} else if (response.startsWith("PLAYER_ACTION")) {
 					// Update the log and/or UI based on the action taken by another player
 				}
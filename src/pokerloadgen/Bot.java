@@ -0,0 +1,224 @@
+package pokerloadgen;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.SplittableRandom;
+
+import pokerserver.ActionType;
+import pokerserver.Card;
+
+/**
+ * One simulated player: a non-blocking connection speaking the text protocol,
+ * driven by the {@link LoadGenerator} event loop. It joins with its ID, plays
+ * its turns with its {@link BotStrategy} after a think time, and records how
+ * long the join and each of its actions took to come back from the server.
+ */
+final class Bot {
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	private final LoadGenerator generator;
+	private final String id;
+	private final BotStrategy strategy;
+	private final SplittableRandom random;
+	private final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+	private final Queue<ByteBuffer> pendingWrites = new ArrayDeque<>();
+	private SocketChannel channel;
+	private SelectionKey key;
+
+	private long connectStartedAt;
+	// When the last action was sent, 0 once the server has echoed it
+	private long actionSentAt;
+	private final Card[] hole = new Card[2];
+	private long board;
+	private boolean seated;
+	private boolean closed;
+
+	Bot(LoadGenerator generator, String id, BotStrategy strategy, SplittableRandom random) {
+		this.generator = generator;
+		this.id = id;
+		this.strategy = strategy;
+		this.random = random;
+	}
+
+	void connect(Selector selector, InetSocketAddress address) throws IOException {
+		connectStartedAt = System.nanoTime();
+		channel = SocketChannel.open();
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		if (channel.connect(address)) {
+			key = channel.register(selector, SelectionKey.OP_READ, this);
+			onConnected();
+		} else {
+			key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+		}
+	}
+
+	void finishConnect() throws IOException {
+		channel.finishConnect();
+		key.interestOps(SelectionKey.OP_READ);
+		onConnected();
+	}
+
+	private void onConnected() throws IOException {
+		generator.stats.connected++;
+		send(id);
+	}
+
+	void read() throws IOException {
+		int read = channel.read(in);
+		if (read == -1) {
+			close(false);
+			return;
+		}
+		in.flip();
+		int start = in.position();
+		for (int i = start; i < in.limit() && !closed; i++) {
+			if (in.get(i) == '\n') {
+				int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+				onLine(new String(in.array(), start, end - start, StandardCharsets.UTF_8));
+				start = i + 1;
+			}
+		}
+		in.position(start);
+		in.compact();
+		if (!in.hasRemaining()) {
+			// No server line is this long, the stream is out of step
+			close(false);
+		}
+	}
+
+	private void onLine(String line) throws IOException {
+		generator.stats.messages++;
+		String[] parts = line.split(" ");
+		switch (parts[0]) {
+		case "ASSIGNED":
+			seated = true;
+			generator.stats.joinLatency.record(System.nanoTime() - connectStartedAt);
+			break;
+		case "DUPLICATE_ID":
+		case "REFUSED":
+			generator.stats.refused++;
+			close(true);
+			break;
+		case "GAME_START":
+			generator.stats.handsDealt++;
+			break;
+		case "HOLE_CARDS":
+			hole[0] = Card.fromCode(parts[1]);
+			hole[1] = Card.fromCode(parts[2]);
+			board = 0;
+			break;
+		case "STATE":
+			if (parts.length > 3 && parts[2].equals("CARD")) {
+				board |= Card.fromCode(parts[3]).getMask();
+			}
+			break;
+		case "PLAYER_TURN":
+			if (parts[1].equals(id)) {
+				int toCall = Integer.parseInt(parts[2]);
+				generator.schedule(thinkTime(), () -> act(toCall));
+			}
+			break;
+		case "PLAYER_ACTION":
+			if (parts[1].equals(id) && actionSentAt != 0) {
+				generator.stats.actionLatency.record(System.nanoTime() - actionSentAt);
+				actionSentAt = 0;
+			}
+			break;
+		default:
+			// Snapshots, deltas and countdowns only matter to a real client
+		}
+	}
+
+	private long thinkTime() {
+		long mean = generator.getThinkTimeNanos();
+		return mean == 0 ? 0 : mean / 2 + random.nextLong(mean);
+	}
+
+	private void act(int toCall) {
+		if (closed || hole[0] == null) {
+			return;
+		}
+		ActionType action = strategy.decide(hole, board, toCall, random);
+		try {
+			actionSentAt = System.nanoTime();
+			send("ACTION " + action + (action == ActionType.RAISE ? " " + (2 + random.nextInt(9)) : ""));
+			generator.stats.actions++;
+		} catch (IOException e) {
+			close(false);
+		}
+	}
+
+	private void send(String line) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+		if (pendingWrites.isEmpty()) {
+			channel.write(buffer);
+			if (!buffer.hasRemaining()) {
+				return;
+			}
+		}
+		pendingWrites.add(buffer);
+		key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+	}
+
+	void flush() throws IOException {
+		while (!pendingWrites.isEmpty()) {
+			ByteBuffer buffer = pendingWrites.peek();
+			channel.write(buffer);
+			if (buffer.hasRemaining()) {
+				return;
+			}
+			pendingWrites.poll();
+		}
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+	}
+
+	/**
+	 * Leaves the table for good, at the end of the run.
+	 */
+	void disconnect() {
+		if (closed) {
+			return;
+		}
+		try {
+			if (seated && channel.isConnected()) {
+				send("DISCONNECT");
+			}
+		} catch (IOException e) {
+			// Closing anyway
+		}
+		close(true);
+	}
+
+	/**
+	 * @param expected false if the server or the network dropped the connection
+	 */
+	void close(boolean expected) {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (!expected) {
+			generator.stats.dropped++;
+		}
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// Nothing left to do with it
+		}
+	}
+
+	boolean isSeated() {
+		return seated && !closed;
+	}
+}
@@ -0,0 +1,81 @@
+package pokerloadgen;
+
+import java.util.SplittableRandom;
+
+import pokerserver.ActionType;
+import pokerserver.Card;
+import pokerserver.HandRank;
+import pokerserver.Rank;
+import pokerserver.SevenCardEvaluator;
+
+/**
+ * How a bot picks its action when it is its turn. A call with nothing to
+ * call is a check.
+ */
+enum BotStrategy {
+	/**
+	 * Checks or calls every time, so hands go to the showdown.
+	 */
+	PASSIVE {
+		@Override
+		ActionType decide(Card[] hole, long board, int toCall, SplittableRandom random) {
+			return ActionType.CALL;
+		}
+	},
+	/**
+	 * Folds, calls or raises at random, mostly calling.
+	 */
+	RANDOM {
+		@Override
+		ActionType decide(Card[] hole, long board, int toCall, SplittableRandom random) {
+			int roll = random.nextInt(100);
+			if (roll < 10 && toCall > 0) {
+				return ActionType.FOLD;
+			}
+			return roll < 80 ? ActionType.CALL : ActionType.RAISE;
+		}
+	},
+	/**
+	 * Raises most of the time, the heaviest load on betting rounds.
+	 */
+	AGGRESSIVE {
+		@Override
+		ActionType decide(Card[] hole, long board, int toCall, SplittableRandom random) {
+			int roll = random.nextInt(100);
+			if (roll < 2) {
+				return ActionType.ALL_IN;
+			}
+			return roll < 60 ? ActionType.RAISE : ActionType.CALL;
+		}
+	},
+	/**
+	 * Plays pairs and high cards before the flop and made hands after it,
+	 * folding the rest when facing a bet.
+	 */
+	TIGHT {
+		@Override
+		ActionType decide(Card[] hole, long board, int toCall, SplittableRandom random) {
+			boolean strong;
+			if (board == 0) {
+				Rank first = hole[0].getRank();
+				Rank second = hole[1].getRank();
+				strong = first == second || first.compareTo(Rank.TEN) >= 0 || second.compareTo(Rank.TEN) >= 0;
+			} else {
+				HandRank rank = SevenCardEvaluator.getHandRank(
+						SevenCardEvaluator.evaluate(hole[0].getMask() | hole[1].getMask() | board));
+				if (rank.getHandRank() >= HandRank.TWO_PAIR.getHandRank()) {
+					return ActionType.RAISE;
+				}
+				strong = rank != HandRank.HIGH_CARD;
+			}
+			return strong || toCall == 0 ? ActionType.CALL : ActionType.FOLD;
+		}
+	};
+
+	/**
+	 * @param hole   the bot's two hole cards
+	 * @param board  the community cards dealt so far, as a CardSet mask
+	 * @param toCall chips needed to stay in the hand
+	 */
+	abstract ActionType decide(Card[] hole, long board, int toCall, SplittableRandom random);
+}
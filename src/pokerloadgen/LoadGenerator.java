@@ -0,0 +1,238 @@
+package pokerloadgen;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load test for a running PokerServer: connects a number of bot
+ * players, lets them play with the chosen {@link BotStrategy} and think time,
+ * and reports join latency, action round trips and throughput.
+ *
+ * Every bot runs on a single selector thread, so thousands of them need no
+ * more than one core on the client side. Connections are opened at a fixed
+ * rate to stay within the server's accept backlog. Usage:
+ *
+ * <pre>
+ * LoadGenerator host port clients [seconds] [strategy] [thinkMs] [connectsPerSecond]
+ * </pre>
+ */
+public final class LoadGenerator {
+	static final int DEFAULT_SECONDS = 60;
+	static final long DEFAULT_THINK_MS = 200;
+	static final int DEFAULT_CONNECTS_PER_SECOND = 200;
+	private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	private final InetSocketAddress address;
+	private final int clients;
+	private final long durationNanos;
+	private final BotStrategy strategy;
+	private final long thinkTimeNanos;
+	private final int connectsPerSecond;
+	private final List<Bot> bots = new ArrayList<>();
+	// Think times and connects, run by the event loop when they are due
+	private final PriorityQueue<Scheduled> scheduled = new PriorityQueue<>();
+	private long scheduleOrder;
+	private Selector selector;
+	final Stats stats = new Stats();
+
+	public LoadGenerator(InetSocketAddress address, int clients, long durationSeconds, BotStrategy strategy,
+			long thinkTimeMs, int connectsPerSecond) {
+		this.address = address;
+		this.clients = clients;
+		this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+		this.strategy = strategy;
+		this.thinkTimeNanos = TimeUnit.MILLISECONDS.toNanos(thinkTimeMs);
+		this.connectsPerSecond = connectsPerSecond;
+	}
+
+	/**
+	 * Runs the test on the calling thread and prints the report when the
+	 * duration is over.
+	 */
+	public void run() throws IOException {
+		selector = Selector.open();
+		long startedAt = System.nanoTime();
+		SplittableRandom random = new SplittableRandom();
+		// Unique per run, so a second run is not refused as duplicate IDs of the first
+		String prefix = "bot" + Long.toString(System.currentTimeMillis() % 1_000_000, 36) + "-";
+		long connectInterval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, connectsPerSecond);
+		for (int i = 0; i < clients; i++) {
+			Bot bot = new Bot(this, prefix + i, strategy, random.split());
+			bots.add(bot);
+			schedule(i * connectInterval, () -> {
+				try {
+					bot.connect(selector, address);
+				} catch (IOException e) {
+					bot.close(false);
+				}
+			});
+		}
+
+		long endAt = startedAt + durationNanos;
+		long nextReport = startedAt + REPORT_INTERVAL_NANOS;
+		Stats lastReport = new Stats();
+		while (true) {
+			long now = System.nanoTime();
+			if (now >= endAt) {
+				break;
+			}
+			runDue(now);
+			if (now >= nextReport) {
+				printProgress(lastReport, now - (nextReport - REPORT_INTERVAL_NANOS));
+				stats.copyCountsTo(lastReport);
+				nextReport += REPORT_INTERVAL_NANOS;
+			}
+			long wakeAt = Math.min(endAt, nextReport);
+			if (!scheduled.isEmpty()) {
+				wakeAt = Math.min(wakeAt, scheduled.peek().dueAt);
+			}
+			long timeoutMs = TimeUnit.NANOSECONDS.toMillis(wakeAt - now);
+			if (timeoutMs > 0) {
+				selector.select(timeoutMs);
+			} else {
+				selector.selectNow();
+			}
+			for (SelectionKey key : selector.selectedKeys()) {
+				handle(key);
+			}
+			selector.selectedKeys().clear();
+		}
+		long elapsed = System.nanoTime() - startedAt;
+		for (Bot bot : bots) {
+			bot.disconnect();
+		}
+		// Let the disconnects go out before the sockets are torn down
+		selector.selectNow();
+		selector.close();
+		printReport(elapsed);
+	}
+
+	private void handle(SelectionKey key) {
+		Bot bot = (Bot) key.attachment();
+		try {
+			if (!key.isValid()) {
+				return;
+			}
+			if (key.isConnectable()) {
+				bot.finishConnect();
+			}
+			if (key.isValid() && key.isReadable()) {
+				bot.read();
+			}
+			if (key.isValid() && key.isWritable()) {
+				bot.flush();
+			}
+		} catch (IOException | RuntimeException e) {
+			bot.close(false);
+		}
+	}
+
+	/**
+	 * Runs the task on the event loop after the delay.
+	 */
+	void schedule(long delayNanos, Runnable task) {
+		scheduled.add(new Scheduled(System.nanoTime() + delayNanos, scheduleOrder++, task));
+	}
+
+	private void runDue(long now) {
+		while (!scheduled.isEmpty() && scheduled.peek().dueAt <= now) {
+			scheduled.poll().task.run();
+		}
+	}
+
+	long getThinkTimeNanos() {
+		return thinkTimeNanos;
+	}
+
+	private void printProgress(Stats last, long intervalNanos) {
+		double seconds = intervalNanos / 1e9;
+		int seated = 0;
+		for (Bot bot : bots) {
+			if (bot.isSeated()) {
+				seated++;
+			}
+		}
+		System.out.println(String.format(Locale.ROOT,
+				"connected=%d seated=%d refused=%d dropped=%d actions/s=%.0f messages/s=%.0f", stats.connected,
+				seated, stats.refused, stats.dropped, (stats.actions - last.actions) / seconds,
+				(stats.messages - last.messages) / seconds));
+	}
+
+	private void printReport(long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		System.out.println(String.format(Locale.ROOT, "Ran %d %s bots for %.1fs against %s", clients, strategy,
+				seconds, address));
+		System.out.println(String.format(Locale.ROOT, "connected=%d refused=%d dropped=%d", stats.connected,
+				stats.refused, stats.dropped));
+		System.out.println("join latency:   " + stats.joinLatency.summary());
+		System.out.println("action latency: " + stats.actionLatency.summary());
+		System.out.println(String.format(Locale.ROOT,
+				"throughput: %.1f actions/s, %.1f messages/s received, %d hands dealt to bots", stats.actions / seconds,
+				stats.messages / seconds, stats.handsDealt));
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println(
+					"Usage: LoadGenerator host port clients [seconds] [strategy] [thinkMs] [connectsPerSecond]");
+			System.err.println("Strategies: PASSIVE, RANDOM, AGGRESSIVE, TIGHT");
+			System.exit(1);
+		}
+		InetSocketAddress address = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+		int clients = Integer.parseInt(args[2]);
+		long seconds = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SECONDS;
+		BotStrategy strategy = args.length > 4 ? BotStrategy.valueOf(args[4].toUpperCase(Locale.ROOT))
+				: BotStrategy.RANDOM;
+		long thinkMs = args.length > 5 ? Long.parseLong(args[5]) : DEFAULT_THINK_MS;
+		int connectsPerSecond = args.length > 6 ? Integer.parseInt(args[6]) : DEFAULT_CONNECTS_PER_SECOND;
+		new LoadGenerator(address, clients, seconds, strategy, thinkMs, connectsPerSecond).run();
+	}
+
+	/**
+	 * Counters of the run, only touched by the event loop.
+	 */
+	static final class Stats {
+		int connected;
+		int refused;
+		int dropped;
+		long actions;
+		long messages;
+		long handsDealt;
+		final LatencyRecorder joinLatency = new LatencyRecorder();
+		final LatencyRecorder actionLatency = new LatencyRecorder();
+
+		void copyCountsTo(Stats other) {
+			other.actions = actions;
+			other.messages = messages;
+		}
+	}
+
+	private static final class Scheduled implements Comparable<Scheduled> {
+		final long dueAt;
+		// Keeps tasks due at the same time in the order they were scheduled
+		final long order;
+		final Runnable task;
+
+		Scheduled(long dueAt, long order, Runnable task) {
+			this.dueAt = dueAt;
+			this.order = order;
+			this.task = task;
+		}
+
+		@Override
+		public int compareTo(Scheduled other) {
+			if (dueAt != other.dueAt) {
+				return Long.compare(dueAt, other.dueAt);
+			}
+			return Long.compare(order, other.order);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package pokerserver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring buffer of player actions.
+ * Network threads append with a single CAS and never take a lock. Only one
+ * thread at a time may drain it, see {@link PokerTable#onAction}.
+ *
+ * Each slot carries a sequence number telling producers and the consumer
+ * whose turn it is: pos when it is free for the producer claiming pos, pos + 1
+ * once that producer has written it.
+ */
+final class ActionQueue {
+	static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Receives the drained actions.
+	 */
+	interface Sink {
+		/**
+		 * @param receivedAt {@link System#nanoTime} when the action was queued
+		 */
+		void accept(String playerId, ActionType action, int amount, long receivedAt);
+	}
+
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final String[] playerIds;
+	private final ActionType[] actions;
+	private final int[] amounts;
+	private final long[] receivedAt;
+	private final AtomicLong tail = new AtomicLong();
+	// Only touched by the consumer
+	private long head;
+
+	/**
+	 * @param capacity number of slots, rounded up to a power of two
+	 */
+	ActionQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		this.playerIds = new String[size];
+		this.actions = new ActionType[size];
+		this.amounts = new int[size];
+		this.receivedAt = new long[size];
+	}
+
+	/**
+	 * Appends an action, returns false if the queue is full.
+	 */
+	boolean offer(String playerId, ActionType action, int amount) {
+		long pos;
+		int index;
+		while (true) {
+			pos = tail.get();
+			index = (int) (pos & mask);
+			long difference = sequences.get(index) - pos;
+			if (difference == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					break;
+				}
+			} else if (difference < 0) {
+				return false;
+			}
+			// Otherwise another producer took this position, try the next one
+		}
+		playerIds[index] = playerId;
+		actions[index] = action;
+		amounts[index] = amount;
+		receivedAt[index] = System.nanoTime();
+		// Publishes the slot to the consumer
+		sequences.lazySet(index, pos + 1);
+		return true;
+	}
+
+	/**
+	 * Hands up to max queued actions to the sink in order, returns how many.
+	 * Must only be called by one thread at a time.
+	 */
+	int drain(Sink sink, int max) {
+		int drained = 0;
+		while (drained < max) {
+			int index = (int) (head & mask);
+			if (sequences.get(index) != head + 1) {
+				// Empty, or the next producer has not finished writing yet
+				break;
+			}
+			String playerId = playerIds[index];
+			ActionType action = actions[index];
+			int amount = amounts[index];
+			long queuedAt = receivedAt[index];
+			playerIds[index] = null;
+			// Frees the slot for the producer one lap ahead
+			sequences.lazySet(index, head + mask + 1);
+			head++;
+			sink.accept(playerId, action, amount, queuedAt);
+			drained++;
+		}
+		return drained;
+	}
+
+	/**
+	 * Discards everything queued, under the same single consumer rule as
+	 * {@link #drain}.
+	 */
+	int clear() {
+		return drain((playerId, action, amount, receivedAt) -> {
+		}, Integer.MAX_VALUE);
+	}
+}
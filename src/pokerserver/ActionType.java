@@ -0,0 +1,26 @@
+package pokerserver;
+
+/**
+ * Betting actions a player can send, in both wire protocols.
+ */
+public enum ActionType {
+    FOLD, CALL, RAISE, ALL_IN;
+
+    private static final ActionType[] VALUES = values();
+
+    /**
+     * Parses the text form used after "ACTION", returns null if unknown.
+     */
+    static ActionType fromText(String text, int start) {
+        for (ActionType type : VALUES) {
+            if (text.startsWith(type.name(), start)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    static ActionType fromOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+    }
+}
@@ -0,0 +1,318 @@
+package pokerserver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of the client protocol, negotiated by sending
+ * {@link #NEGOTIATION_LINE} as the very first text line. From then on both
+ * directions use frames:
+ *
+ * <pre>
+ * frame  := varint(length) opcode payload      length covers opcode and payload
+ * string := varint(byte length) UTF-8 bytes
+ * card   := one byte, the card index (0-51)
+ * </pre>
+ *
+ * Numbers are unsigned LEB128 varints, so typical amounts take one or two
+ * bytes. Decoding works on the connection's read buffer and fills a reused
+ * {@link Command}; only a JOIN allocates (the player's ID).
+ */
+final class BinaryProtocol {
+	static final String NEGOTIATION_LINE = "PROTOCOL BINARY";
+	// Client frames are tiny, anything longer is treated as garbage
+	static final int MAX_FRAME_LENGTH = 1024;
+
+	// Client to server
+	static final int JOIN = 0x01; // string id, or "id token" to reconnect
+	static final int ACTION = 0x02; // byte action type, varint amount
+	static final int DISCONNECT = 0x03;
+	static final int RESYNC = 0x04;
+	static final int WATCH = 0x05; // optional varint table id, the featured table without one
+
+	// Server to client
+	static final int PROTOCOL_OK = 0x20;
+	static final int ASSIGNED = 0x21; // varint seat, string reconnect token
+	static final int DUPLICATE_ID = 0x22;
+	static final int REFUSED = 0x23;
+	static final int PLAYER_JOINED = 0x24; // string id
+	static final int PLAYER_DISCONNECTED = 0x25; // string id
+	// varint seq, varint pot, varint count, count x (varint seat, string id, varint chips), varint count, cards
+	static final int SNAPSHOT = 0x26;
+	static final int GAME_START = 0x27;
+	static final int HOLE_CARDS = 0x28; // varint count, cards
+	static final int PLAYER_TURN = 0x2B; // string id, varint to call, varint time allowed in ms
+	static final int PLAYER_ACTION = 0x2C; // string id, byte action type, varint amount
+	static final int WINNER = 0x2D; // string id
+	static final int STATE = 0x2E; // varint seq, byte kind, payload of the kind
+	static final int TEXT = 0x3F; // string, any message without a binary form
+
+	// Kinds of STATE delta, see TableState
+	static final int STATE_SEAT = 0; // varint seat, string id, empty if the seat was freed
+	static final int STATE_CHIPS = 1; // varint seat, varint chips
+	static final int STATE_CARD = 2; // card
+	static final int STATE_POT = 3; // varint pot
+	static final int STATE_NEW_HAND = 4;
+
+	private BinaryProtocol() {
+	}
+
+	/**
+	 * Decodes one frame from the buffer into the command. Returns false and
+	 * leaves the buffer position untouched if the frame is not complete yet.
+	 *
+	 * @throws IllegalArgumentException if the frame is malformed, including a
+	 *         payload shorter or longer than the frame
+	 */
+	static boolean decode(ByteBuffer in, Command command) {
+		int start = in.position();
+		int length = readVarint(in);
+		if (length == -1 || in.remaining() < length) {
+			in.position(start);
+			return false;
+		}
+		if (length == 0 || length > MAX_FRAME_LENGTH) {
+			throw new IllegalArgumentException("Bad frame length " + length);
+		}
+		int end = in.position() + length;
+		int limit = in.limit();
+		// Reads past the frame fail instead of taking the next frame's bytes
+		in.limit(end);
+		try {
+			decodeBody(in, command);
+			if (in.hasRemaining() && command.opcode != Command.UNKNOWN) {
+				throw new IllegalArgumentException("Trailing bytes in frame");
+			}
+		} finally {
+			in.limit(limit);
+		}
+		// Skips the payload of an opcode this server does not know
+		in.position(end);
+		return true;
+	}
+
+	// Decodes the opcode and payload of a frame, the buffer's limit is the end of the frame
+	private static void decodeBody(ByteBuffer in, Command command) {
+		int opcode = in.get() & 0xFF;
+		switch (opcode) {
+		case JOIN:
+			command.set(Command.JOIN, null, 0, readString(in));
+			break;
+		case ACTION:
+			if (!in.hasRemaining()) {
+				throw new IllegalArgumentException("Truncated frame");
+			}
+			ActionType type = ActionType.fromOrdinal(in.get());
+			if (type == null) {
+				throw new IllegalArgumentException("Bad action type");
+			}
+			int amount = readField(in);
+			if (amount < 0 || amount > Command.MAX_AMOUNT) {
+				throw new IllegalArgumentException("Bad action amount");
+			}
+			command.set(Command.ACTION, type, amount, null);
+			break;
+		case DISCONNECT:
+			command.set(Command.DISCONNECT, null, 0, null);
+			break;
+		case RESYNC:
+			command.set(Command.RESYNC, null, 0, null);
+			break;
+		case WATCH:
+			command.set(Command.WATCH, null, in.hasRemaining() ? readField(in) : -1, null);
+			break;
+		default:
+			command.set(Command.UNKNOWN, null, 0, null);
+		}
+	}
+
+	// A varint that has to be complete within the frame
+	private static int readField(ByteBuffer in) {
+		int value = readVarint(in);
+		if (value == -1) {
+			throw new IllegalArgumentException("Truncated frame");
+		}
+		return value;
+	}
+
+	/**
+	 * Encodes a client command, used by bots and tests speaking the binary protocol.
+	 */
+	static void encodeCommand(ByteBuffer out, Command command) {
+		ByteBuffer body = ByteBuffer.allocate(MAX_FRAME_LENGTH);
+		body.put((byte) command.opcode);
+		if (command.opcode == JOIN) {
+			writeString(body, command.text);
+		} else if (command.opcode == ACTION) {
+			body.put((byte) command.action.ordinal());
+			writeVarint(body, command.amount);
+		} else if (command.opcode == WATCH && command.amount >= 0) {
+			writeVarint(body, command.amount);
+		}
+		body.flip();
+		writeVarint(out, body.remaining());
+		out.put(body);
+	}
+
+	/**
+	 * Encodes a server message given in its text form. Called once per message
+	 * by {@link OutboundMessage}, whatever the number of recipients.
+	 */
+	static ByteBuffer encodeMessage(String line) {
+		ByteBuffer body = ByteBuffer.allocate(Math.max(64, line.length() * 3 + 16));
+		String[] parts = line.split(" ");
+		switch (parts[0]) {
+		case "PROTOCOL":
+			body.put((byte) PROTOCOL_OK);
+			break;
+		case "ASSIGNED":
+			body.put((byte) ASSIGNED);
+			writeVarint(body, Integer.parseInt(parts[1]));
+			writeString(body, parts[2]);
+			break;
+		case "DUPLICATE_ID":
+			body.put((byte) DUPLICATE_ID);
+			break;
+		case "REFUSED":
+			body.put((byte) REFUSED);
+			break;
+		case "GAME_START":
+			body.put((byte) GAME_START);
+			break;
+		case "PLAYER_JOINED":
+			body.put((byte) PLAYER_JOINED);
+			writeString(body, parts[1]);
+			break;
+		case "PLAYER_DISCONNECTED":
+			body.put((byte) PLAYER_DISCONNECTED);
+			writeString(body, parts[1]);
+			break;
+		case "WINNER":
+			body.put((byte) WINNER);
+			writeString(body, parts[1]);
+			break;
+		case "SNAPSHOT":
+			body.put((byte) SNAPSHOT);
+			writeVarint(body, Integer.parseInt(parts[1]));
+			writeVarint(body, Integer.parseInt(parts[2]));
+			String[] seats = parts[3].equals("-") ? new String[0] : parts[3].split(";");
+			writeVarint(body, seats.length);
+			for (String seat : seats) {
+				String[] fields = seat.split(",");
+				writeVarint(body, Integer.parseInt(fields[0]));
+				writeString(body, fields[1]);
+				writeVarint(body, Integer.parseInt(fields[2]));
+			}
+			writeCards(body, parts, 4);
+			break;
+		case "STATE":
+			body.put((byte) STATE);
+			writeVarint(body, Integer.parseInt(parts[1]));
+			encodeDelta(body, parts);
+			break;
+		case "HOLE_CARDS":
+			body.put((byte) HOLE_CARDS);
+			writeCards(body, parts, 1);
+			break;
+		case "PLAYER_TURN":
+			body.put((byte) PLAYER_TURN);
+			writeString(body, parts[1]);
+			writeVarint(body, Integer.parseInt(parts[2]));
+			writeVarint(body, Integer.parseInt(parts[3]));
+			break;
+		case "PLAYER_ACTION":
+			body.put((byte) PLAYER_ACTION);
+			writeString(body, parts[1]);
+			body.put((byte) ActionType.valueOf(parts[2]).ordinal());
+			writeVarint(body, parts.length > 3 ? Integer.parseInt(parts[3]) : 0);
+			break;
+		default:
+			body.put((byte) TEXT);
+			writeString(body, line);
+		}
+		body.flip();
+		ByteBuffer frame = ByteBuffer.allocate(body.remaining() + 5);
+		writeVarint(frame, body.remaining());
+		frame.put(body);
+		frame.flip();
+		return frame;
+	}
+
+	private static void encodeDelta(ByteBuffer body, String[] parts) {
+		switch (parts[2]) {
+		case "SEAT":
+			body.put((byte) STATE_SEAT);
+			writeVarint(body, Integer.parseInt(parts[3]));
+			writeString(body, parts[4].equals("-") ? "" : parts[4]);
+			break;
+		case "CHIPS":
+			body.put((byte) STATE_CHIPS);
+			writeVarint(body, Integer.parseInt(parts[3]));
+			writeVarint(body, Integer.parseInt(parts[4]));
+			break;
+		case "CARD":
+			body.put((byte) STATE_CARD);
+			body.put((byte) Card.fromCode(parts[3]).getIndex());
+			break;
+		case "POT":
+			body.put((byte) STATE_POT);
+			writeVarint(body, Integer.parseInt(parts[3]));
+			break;
+		case "NEW_HAND":
+			body.put((byte) STATE_NEW_HAND);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown state delta " + parts[2]);
+		}
+	}
+
+	// varint count followed by one byte per card, for the codes from parts[from] on
+	private static void writeCards(ByteBuffer out, String[] parts, int from) {
+		writeVarint(out, Math.max(0, parts.length - from));
+		for (int i = from; i < parts.length; i++) {
+			out.put((byte) Card.fromCode(parts[i]).getIndex());
+		}
+	}
+
+	static void writeVarint(ByteBuffer out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	/**
+	 * Reads an unsigned varint, returns -1 if the buffer ends first.
+	 */
+	static int readVarint(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (!in.hasRemaining()) {
+				return -1;
+			}
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Varint too long");
+	}
+
+	static void writeString(ByteBuffer out, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(out, bytes.length);
+		out.put(bytes);
+	}
+
+	static String readString(ByteBuffer in) {
+		int length = readVarint(in);
+		if (length < 0 || length > in.remaining()) {
+			throw new IllegalArgumentException("Bad string length");
+		}
+		String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return value;
+	}
+}
@@ -0,0 +1,166 @@
+package pokerserver;
+
+/**
+ * Exact equity by walking every runout of a partial board, e.g. for an all in
+ * on the flop or the turn.
+ *
+ * Runouts that only differ by a permutation of suits the known cards cannot
+ * tell apart give every player the same result. So only one runout of each
+ * such class is evaluated, and it is weighted by the size of its class. Two
+ * suits are interchangeable when every hand, the board and the dead cards
+ * hold the same ranks in both. The canonical runout of a class is the one
+ * whose rank masks, within each group of interchangeable suits, do not
+ * increase from one suit to the next.
+ */
+public final class BoardEnumerator {
+	private static final int SUITS = 4;
+
+	private final long[] hands;
+	private final long board;
+	private final long dead;
+	// Groups of interchangeable suits with more than one member, each in ascending order
+	private final int[][] groups;
+
+	/**
+	 * @param dead cards that can not come on the board but belong to nobody,
+	 *             e.g. folded hands or burn cards
+	 */
+	public BoardEnumerator(long[] hands, long board, long dead) {
+		this.hands = hands;
+		this.board = board;
+		this.dead = dead;
+		this.groups = interchangeableSuits();
+	}
+
+	/**
+	 * Enumerates the runouts from the cards the deck has not dealt yet. Every
+	 * other card counts as dead.
+	 */
+	public static EquityCalculator.Equity enumerate(long[] hands, long board, Deck deck) {
+		long known = board;
+		for (long hand : hands) {
+			known |= hand;
+		}
+		long dead = CardSet.FULL_DECK & ~deck.getUndealtMask() & ~known;
+		return new BoardEnumerator(hands, board, dead).enumerate();
+	}
+
+	/**
+	 * Evaluates every canonical runout on the calling thread.
+	 */
+	public EquityCalculator.Equity enumerate() {
+		long known = board | dead;
+		for (long hand : hands) {
+			known |= hand;
+		}
+		long[] live = new long[52 - CardSet.size(known)];
+		int count = 0;
+		for (long remaining = CardSet.FULL_DECK & ~known; remaining != 0; remaining &= remaining - 1) {
+			live[count++] = Long.lowestOneBit(remaining);
+		}
+		EquityCalculator.Tally tally = new EquityCalculator.Tally(hands);
+		enumerate(tally, live, board, 0, 5 - CardSet.size(board));
+		return tally.toEquity(true);
+	}
+
+	private void enumerate(EquityCalculator.Tally tally, long[] live, long cards, int start, int remaining) {
+		if (remaining == 0) {
+			int weight = weight(cards & ~board);
+			if (weight != 0) {
+				tally.score(cards, weight);
+			}
+			return;
+		}
+		for (int i = start; i <= live.length - remaining; i++) {
+			enumerate(tally, live, cards | live[i], i + 1, remaining - 1);
+		}
+	}
+
+	/**
+	 * Returns how many runouts the given one stands for, or 0 if it is not the
+	 * canonical runout of its class and has to be skipped.
+	 */
+	int weight(long runout) {
+		int weight = 1;
+		for (int[] group : groups) {
+			int previous = suitMask(runout, group[0]);
+			int run = 1;
+			int arrangements = 1;
+			for (int i = 1; i < group.length; i++) {
+				int mask = suitMask(runout, group[i]);
+				if (mask > previous) {
+					return 0;
+				}
+				run = mask == previous ? run + 1 : 1;
+				// Builds m! / (k1! k2! ...) one factor at a time
+				arrangements = arrangements * (i + 1) / run;
+				previous = mask;
+			}
+			weight *= arrangements;
+		}
+		return weight;
+	}
+
+	/**
+	 * True if no two suits are interchangeable, so every runout has weight 1.
+	 */
+	boolean isTrivial() {
+		return groups.length == 0;
+	}
+
+	private int[][] interchangeableSuits() {
+		int[] groupOf = new int[SUITS];
+		int groupCount = 0;
+		int[] sizes = new int[SUITS];
+		for (int suit = 0; suit < SUITS; suit++) {
+			groupOf[suit] = -1;
+			for (int other = 0; other < suit; other++) {
+				if (sameRanks(suit, other)) {
+					groupOf[suit] = groupOf[other];
+					break;
+				}
+			}
+			if (groupOf[suit] == -1) {
+				groupOf[suit] = groupCount++;
+			}
+			sizes[groupOf[suit]]++;
+		}
+		int multiple = 0;
+		for (int group = 0; group < groupCount; group++) {
+			if (sizes[group] > 1) {
+				multiple++;
+			}
+		}
+		int[][] groups = new int[multiple][];
+		int next = 0;
+		for (int group = 0; group < groupCount; group++) {
+			if (sizes[group] > 1) {
+				int[] suits = new int[sizes[group]];
+				int size = 0;
+				for (int suit = 0; suit < SUITS; suit++) {
+					if (groupOf[suit] == group) {
+						suits[size++] = suit;
+					}
+				}
+				groups[next++] = suits;
+			}
+		}
+		return groups;
+	}
+
+	private boolean sameRanks(int suit, int other) {
+		if (suitMask(board, suit) != suitMask(board, other) || suitMask(dead, suit) != suitMask(dead, other)) {
+			return false;
+		}
+		for (long hand : hands) {
+			if (suitMask(hand, suit) != suitMask(hand, other)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int suitMask(long cards, int suit) {
+		return (int) (cards >>> (suit * CardSet.SUIT_BITS)) & CardSet.RANK_MASK;
+	}
+}
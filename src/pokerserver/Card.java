@@ -1,12 +1,47 @@
 package pokerserver;
 
 public class Card {
+    // One shared instance per card, indexed by getIndex()
+    private static final Card[] CARDS = new Card[52];
+    // Rank characters by ordinal and suit characters by ordinal, for getCode()
+    private static final String RANK_CODES = "23456789TJQKA";
+    private static final String SUIT_CODES = "hscd";
+
+    static {
+        for (Suit suit : Suit.values()) {
+            for (Rank rank : Rank.values()) {
+                Card card = new Card(suit, rank);
+                CARDS[card.index] = card;
+            }
+        }
+    }
+
     private final Suit suit;
     private final Rank rank;
+    private final int index;
+    private final long mask;
+    private final String code;
 
     public Card(Suit suit, Rank rank) {
         this.suit = suit;
         this.rank = rank;
+        this.index = suit.ordinal() * 13 + rank.ordinal();
+        this.mask = CardSet.bitOf(index);
+        this.code = "" + RANK_CODES.charAt(rank.ordinal()) + SUIT_CODES.charAt(suit.ordinal());
+    }
+
+    /**
+     * Returns the shared instance for the given suit and rank.
+     */
+    public static Card of(Suit suit, Rank rank) {
+        return CARDS[suit.ordinal() * 13 + rank.ordinal()];
+    }
+
+    /**
+     * Returns the shared instance for a card index between 0 and 51.
+     */
+    public static Card of(int index) {
+        return CARDS[index];
     }
 
     public Suit getSuit() {
@@ -17,6 +52,49 @@ public class Card {
         return rank;
     }
 
+    /**
+     * The position of this card in a 52 card deck, suit major.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * The bit of this card in a {@link CardSet} mask.
+     */
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * Two character code used on the wire, rank then suit, e.g. "Ah" or "Tc".
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Parses a code produced by {@link #getCode()}.
+     */
+    public static Card fromCode(String code) {
+        int rank = code.length() == 2 ? RANK_CODES.indexOf(code.charAt(0)) : -1;
+        int suit = code.length() == 2 ? SUIT_CODES.indexOf(code.charAt(1)) : -1;
+        if (rank < 0 || suit < 0) {
+            throw new IllegalArgumentException("Not a card code: " + code);
+        }
+        return CARDS[suit * 13 + rank];
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Card && ((Card) obj).index == index;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
+    }
+
     @Override
     public String toString() {
         return suit + " " + rank;
@@ -30,4 +108,3 @@ public class Card {
     	return rank.getRank();
     }
 }
-
@@ -0,0 +1,73 @@
+package pokerserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static helpers for sets of cards packed into a long.
+ *
+ * Each suit owns 16 bits of the mask, in {@link Suit} order, and inside a suit
+ * bit n stands for the rank with ordinal n. A hand, a board or the undealt part
+ * of a deck is then a single long, and the per-suit rank masks the evaluator
+ * works on are plain shifts of it.
+ */
+public final class CardSet {
+
+	public static final long EMPTY = 0L;
+	public static final long FULL_DECK = 0x1FFF1FFF1FFF1FFFL;
+
+	static final int SUIT_BITS = 16;
+	static final int RANK_MASK = 0x1FFF;
+
+	private CardSet() {
+	}
+
+	/**
+	 * Returns the mask bit of the card with the given index between 0 and 51.
+	 */
+	public static long bitOf(int cardIndex) {
+		return 1L << (cardIndex / 13 * SUIT_BITS + cardIndex % 13);
+	}
+
+	/**
+	 * Returns the card index of a single bit position of a mask.
+	 */
+	public static int indexOfBit(int bitPosition) {
+		return bitPosition / SUIT_BITS * 13 + bitPosition % SUIT_BITS;
+	}
+
+	public static long of(List<Card> cards) {
+		long mask = EMPTY;
+		for (int i = 0; i < cards.size(); i++) {
+			mask |= cards.get(i).getMask();
+		}
+		return mask;
+	}
+
+	public static boolean contains(long mask, Card card) {
+		return (mask & card.getMask()) != 0;
+	}
+
+	public static int size(long mask) {
+		return Long.bitCount(mask);
+	}
+
+	/**
+	 * Returns the rank mask of one suit, bit n standing for the rank with ordinal n.
+	 */
+	public static int suitRanks(long mask, Suit suit) {
+		return (int) (mask >>> (suit.ordinal() * SUIT_BITS)) & RANK_MASK;
+	}
+
+	/**
+	 * Expands the mask into the shared {@link Card} instances, lowest index first.
+	 */
+	public static List<Card> toList(long mask) {
+		List<Card> cards = new ArrayList<>(Long.bitCount(mask));
+		while (mask != 0) {
+			cards.add(Card.of(indexOfBit(Long.numberOfTrailingZeros(mask))));
+			mask &= mask - 1;
+		}
+		return cards;
+	}
+}
@@ -0,0 +1,36 @@
+package pokerserver;
+
+import java.util.function.Supplier;
+
+/**
+ * The transport side of a connected client, as seen by its {@link ClientSession}
+ * and by the table broadcasting to it.
+ */
+interface ClientConnection {
+
+	/**
+	 * Queues one message for the client. Must be safe to call from any thread.
+	 */
+	void send(OutboundMessage message);
+
+	default void send(String line) {
+		send(new OutboundMessage(line));
+	}
+
+	/**
+	 * Switches both directions to {@link BinaryProtocol} frames after the
+	 * negotiation line. Returns false if this transport only speaks text.
+	 */
+	boolean enableBinary();
+
+	/**
+	 * Sets the line sent instead of the backlog when this client falls too far
+	 * behind, see {@link SlowConsumerPolicy#RESYNC}.
+	 */
+	void setSnapshot(Supplier<String> snapshot);
+
+	/**
+	 * Closes the connection once the lines already sent have been written.
+	 */
+	void close();
+}
@@ -1,147 +1,132 @@
 package pokerserver;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Blocking transport: one thread per client, reading lines with a
+ * {@link BufferedReader}, plus a writer thread draining the client's
+ * {@link OutboundQueue}. See {@link NioServer} for the non-blocking one.
+ * Only the text protocol is spoken here.
+ */
+public class ClientHandler implements Runnable, ClientConnection {
+	private static final int MAX_BATCH = 256;
+	// Wakes a writer waiting on an empty queue after close(), never written
+	private static final OutboundMessage WAKE_UP = new OutboundMessage("WAKE_UP");
 
-public class ClientHandler implements Runnable {
 	private PokerServer server;
 	private Socket clientSocket;
-	private String id;
+	private final OutboundQueue outbound;
+	private volatile boolean closeAfterFlush = false;
 	
 	public ClientHandler(PokerServer server, Socket clientSocket) {
 		this.server = server;
 		this.clientSocket = clientSocket;
+		this.outbound = new OutboundQueue(OutboundQueue.DEFAULT_CAPACITY, server.getSlowConsumerPolicy(),
+				server.getMetrics().outboundQueued);
 	}
 
 	@Override
 	public void run() {
+		ClientSession session = new ClientSession(server, this);
+		server.getMetrics().connectionsOpened.increment();
+		Thread writer = null;
 		try {
 			// Create input and output streams for the client's socket
 			BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-			PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true);
+			OutputStream out = new BufferedOutputStream(clientSocket.getOutputStream());
+			writer = server.getThreadMode().newThread(() -> writeLoop(out), "writer-" + clientSocket.getPort());
+			writer.start();
 
-			// Read the client's ID from the input stream
-			String id = in.readLine();
-			server.serverTextArea.append("Client " + id + " connected\n");
-			server.broadcast("PLAYER_JOINED " + id);
-			// Add the client's output stream to the list of clients
-			synchronized (server.clients) {
-				server.clients.add(out);
-			}
-			// Check for duplicate IDs and handle accordingly
-			synchronized (server.uniqueIDs) {
-				if (server.uniqueIDs.contains(id)) {
-					out.println("DUPLICATE_ID");
-					clientSocket.close();
-					return;
-				} else {
-					server.uniqueIDs.add(id);
-				}
+			String message;
+			while (!clientSocket.isClosed() && (message = in.readLine()) != null) {
+				session.onLine(message);
 			}
-			// Seat Handling
-			int assignedSeat = -1;
-			List<Integer> availableSeats = new ArrayList<>();
-			synchronized (server.seats) {
-				// Create a available seat with seat number 0-5 for clients, if the seat number
-				// is occupied then skip
-				for (int i = 0; i < server.MAX_PLAYERS; i++) {
-					if (server.seats[i] == null) {
-						server.seats[i] = new PlayerSeat(i);
-					}
-					if (!server.seats[i].isOccupied) {
-						availableSeats.add(i);
-					}
-				}
-				if (!availableSeats.isEmpty()) {
-					int randomIndex = new Random().nextInt(availableSeats.size());
-					assignedSeat = availableSeats.get(randomIndex);
-					server.seats[assignedSeat].assignSeat(id); // Assign a random available seat to the connected client
-				}
+		} catch (IOException e) {
+			if (!clientSocket.isClosed()) {
+				server.log("Connection error on port " + clientSocket.getPort(), e);
 			}
-			if (assignedSeat == -1) {
-				out.println("REFUSED");
-				clientSocket.close();
-				return;
-			} else {
-				// Broadcast the updated seat information to all clients
-				server.broadcast("SEATINFO " + server.getSeatInfo());
-				out.println("ASSIGNED " + assignedSeat);
-				out.println("SEATINFO " + server.getSeatInfo());
+		} finally {
+			session.onDisconnect();
+			if (writer != null) {
+				writer.interrupt();
 			}
-			synchronized (server.uniqueIDs) {
-				int playerCount = server.uniqueIDs.size();
-//				if (playerCount >= 2 && server.countdownTimer != null && !server.countdownTimer.isRunning()) {
-//					server.countdownTimer = new CountdownTimer(server, 10, () -> server.uniqueIDs.size());
-//					server.countdownTimer.start();
-//				}
-				if (playerCount >= 2 && !server.isRoundInProgress()) {
-					server.serverTextArea.append("abcd\n");
-					server.startNewRound();
+			closeNow();
+			outbound.discard();
+			server.getMetrics().connectionsClosed.increment();
+		}
+	}
+
+	// Writes whatever has been queued since the last flush, then flushes once
+	private void writeLoop(OutputStream out) {
+		List<OutboundMessage> batch = new ArrayList<>(MAX_BATCH);
+		try {
+			while (!clientSocket.isClosed()) {
+				if (outbound.drainTo(batch, MAX_BATCH) == 0) {
+					if (closeAfterFlush) {
+						closeNow();
+						return;
+					}
+					batch.add(outbound.take());
+					outbound.drainTo(batch, MAX_BATCH - 1);
 				}
-			}
-			// TODO
-			// Handle the "DISCONNECT" message
-			while (true) {
-				String message = in.readLine();
-				if (message == null || message.equals("DISCONNECT")) {
-					synchronized (server.seats) {
-						server.seats[assignedSeat].releaseSeat();
+				server.getMetrics().outboundBatch.record(batch.size());
+				for (OutboundMessage message : batch) {
+					if (message != WAKE_UP) {
+						// Encoded once per message, shared with the other clients of a broadcast
+						out.write(message.getTextBytes());
 					}
-					server.serverTextArea.append("Client " + id + " disconnected\n");
-					server.broadcast("PLAYER_DISCONNECTED " + id);
-					server.broadcast("SEATINFO " + server.getSeatInfo());
-					break;
-				} else if (message.startsWith("ACTION")) {
-                    handlePlayerAction(message);
-                }
-			}
-
-			// Remove the client's output stream from the list of clients and the unique ID
-			synchronized (server.clients) {
-				server.clients.remove(out);
-			}
-			synchronized (server.uniqueIDs) {
-				server.uniqueIDs.remove(id);
+				}
+				out.flush();
+				batch.clear();
 			}
-
-		} catch (IOException e) {
-			e.printStackTrace();
+		} catch (InterruptedException | IOException e) {
+			// Connection is going away
 		}
 	}
 
-	private void handlePlayerAction(String message) {
-	    // Extract the player action from the message, e.g., "ACTION FOLD"
-	    String action = message.substring("ACTION".length()).trim();
+	@Override
+	public void send(OutboundMessage message) {
+		if (closeAfterFlush) {
+			// A resync now could still throw away the lines close() is waiting for
+			return;
+		}
+		if (!outbound.offer(message)) {
+			server.log("Disconnecting slow client on port " + clientSocket.getPort());
+			closeNow();
+		}
+	}
 
-	    // Get the current game
-	    PokerGame game = server.getCurrentGame();
+	@Override
+	public boolean enableBinary() {
+		return false;
+	}
 
-	    // Check if it is the current player's turn
-	    Player currentPlayer = game.getCurrentPlayer();
-	    
-	    if (currentPlayer.getId().equals(id)) {
-	        synchronized (game) {
-	            // Update the game state with the player's action
-	            game.handleAction(id, action);
+	@Override
+	public void setSnapshot(Supplier<String> snapshot) {
+		outbound.setSnapshot(snapshot);
+	}
 
-	            // Notify the server that the action has been processed
-	            game.notifyAll();
-	        }
-	    } else if ("FOLD".equals(action)) {
-	        // If it's not the current player's turn, but they're folding (probably due to disconnect),
-	        // then handle the action anyway
-	        synchronized (game) {
-	            game.handleAction(id, action);
-	            game.notifyAll();
-	        }
-	    } 
-	    // Ignore all other actions from players whose turn it is not
+	@Override
+	public void close() {
+		// Not queued through send(), where the slow consumer policy could drop it
+		closeAfterFlush = true;
+		// A full queue already keeps the writer busy until it sees the flag
+		outbound.offerIfRoom(WAKE_UP);
 	}
 
+	private void closeNow() {
+		try {
+			clientSocket.close();
+		} catch (IOException e) {
+			server.log("Closing the socket on port " + clientSocket.getPort() + " failed", e);
+		}
+	}
 }
@@ -0,0 +1,221 @@
+package pokerserver;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Protocol handling for one client, independent of how its lines are read and
+ * written. The first line is the client's ID, every following line is a command.
+ * A transport calls {@link #onLine(String)} for each line it frames and
+ * {@link #onDisconnect()} once when the connection is gone, both from the same
+ * thread.
+ *
+ * A client may instead open with {@link BinaryProtocol#NEGOTIATION_LINE}; if
+ * the transport supports it, everything after that is framed and arrives
+ * already decoded through {@link #onCommand(Command)}.
+ *
+ * Opening with "WATCH" or "WATCH tableId" instead of an ID makes the client a
+ * read-only spectator of that table, or of the featured table.
+ *
+ * IDs are 1 to {@link #MAX_ID_LENGTH} letters, digits, '_' or '-', starting
+ * with a letter or digit, and not a command word. They end up in messages
+ * split on spaces, ',' and ';', and "-" stands for an empty seat there.
+ *
+ * A seat comes as "ASSIGNED seat token". A player who dropped gets their seat
+ * back within the grace period by opening with "id token" instead of the ID.
+ */
+class ClientSession {
+	static final int MAX_ID_LENGTH = 32;
+	private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]{0," + (MAX_ID_LENGTH - 1) + "}");
+	private static final Set<String> RESERVED_IDS = new HashSet<>(
+			Arrays.asList("WATCH", "PROTOCOL", "ACTION", "RESYNC", "DISCONNECT"));
+
+	private final PokerServer server;
+	private final ClientConnection connection;
+	private String id;
+	private PokerTable table;
+	private int assignedSeat = -1;
+	private boolean closed = false;
+	private boolean negotiated = false;
+	private boolean spectator = false;
+	// Reused for every text line
+	private final Command command = new Command();
+
+	ClientSession(PokerServer server, ClientConnection connection) {
+		this.server = server;
+		this.connection = connection;
+	}
+
+	void onLine(String message) {
+		if (closed) {
+			return;
+		}
+		if (id == null && !spectator) {
+			if (message.equals("WATCH") || message.startsWith("WATCH ")) {
+				int tableId;
+				try {
+					tableId = message.length() > 5 ? Integer.parseInt(message.substring(6).trim()) : -1;
+				} catch (NumberFormatException e) {
+					tableId = -2;
+				}
+				watch(tableId);
+				return;
+			}
+			if (!negotiated && message.equals(BinaryProtocol.NEGOTIATION_LINE)) {
+				negotiated = true;
+				if (connection.enableBinary()) {
+					connection.send(BinaryProtocol.NEGOTIATION_LINE);
+				} else {
+					connection.send("PROTOCOL TEXT");
+				}
+				return;
+			}
+			join(message);
+		} else {
+			onCommand(command.parseLine(message));
+		}
+	}
+
+	/**
+	 * Handles a decoded command, from a binary frame or a parsed text line.
+	 */
+	void onCommand(Command command) {
+		if (closed) {
+			return;
+		}
+		if (spectator) {
+			onSpectatorCommand(command);
+			return;
+		}
+		if (id == null) {
+			if (command.opcode == Command.JOIN) {
+				join(command.text);
+			} else if (command.opcode == Command.WATCH) {
+				watch(command.amount);
+			}
+			return;
+		}
+		switch (command.opcode) {
+		case Command.DISCONNECT:
+			// Leaving on purpose, the seat is freed right away
+			closed = true;
+			table.leave(id, assignedSeat);
+			connection.close();
+			break;
+		case Command.RESYNC:
+			// The client saw a gap in the state sequence
+			table.getState().resync(connection);
+			break;
+		case Command.ACTION:
+			// The game ignores actions from players whose turn it is not, except folds
+			table.onAction(id, command.action, command.amount);
+			break;
+		default:
+			// Unknown commands are ignored
+		}
+	}
+
+	static boolean isValidId(String clientId) {
+		return clientId != null && VALID_ID.matcher(clientId).matches() && !RESERVED_IDS.contains(clientId);
+	}
+
+	private void join(String line) {
+		int space = line.indexOf(' ');
+		String clientId = space < 0 ? line : line.substring(0, space);
+		String token = space < 0 ? null : line.substring(space + 1);
+		if (!isValidId(clientId)) {
+			server.log("Refused invalid client ID");
+			refuse("REFUSED");
+			return;
+		}
+		id = clientId;
+		server.log("Client " + id + " connected");
+		// Check for duplicate IDs and handle accordingly
+		SessionRegistry sessions = server.getSessions();
+		if (!sessions.claim(id)) {
+			// The ID may belong to a dropped player coming back within their grace period
+			table = sessions.getTable(id);
+			if (table == null || !table.reconnect(id, token, connection)) {
+				table = null;
+				refuse("DUPLICATE_ID");
+			} else {
+				assignedSeat = table.findSeat(id);
+				connection.setSnapshot(table.getState()::snapshot);
+			}
+			return;
+		}
+		// Seat Handling: route the client to a table with a free seat
+		table = server.getTableManager().joinTable(id);
+		if (table == null) {
+			sessions.release(id);
+			refuse("REFUSED");
+			return;
+		}
+		sessions.assign(id, table);
+		assignedSeat = table.findSeat(id);
+		connection.setSnapshot(table.getState()::snapshot);
+		connection.send("ASSIGNED " + assignedSeat + " " + sessions.issueToken(id));
+		table.broadcast("PLAYER_JOINED " + id);
+		// The others get a one seat delta, the new client a snapshot that already includes it
+		table.getState().seat(assignedSeat, id);
+		table.getState().attach(id, connection);
+		table.onPlayerJoined();
+	}
+
+	// -1 for the featured table
+	private void watch(int tableId) {
+		table = tableId < -1 ? null : server.getTableManager().getTable(tableId);
+		if (table == null) {
+			refuse("REFUSED");
+			return;
+		}
+		spectator = true;
+		server.log("Spectator watching table " + table.getTableId());
+		table.watch(connection);
+	}
+
+	// Spectators are read-only, they can only ask for a snapshot or leave
+	private void onSpectatorCommand(Command command) {
+		switch (command.opcode) {
+		case Command.DISCONNECT:
+			closed = true;
+			table.unwatch(connection);
+			connection.close();
+			break;
+		case Command.RESYNC:
+			// Through the hub, so the snapshot is delayed like everything else
+			table.resyncSpectator(connection);
+			break;
+		default:
+			// Anything else is ignored
+		}
+	}
+
+	private void refuse(String reason) {
+		closed = true;
+		connection.send(reason);
+		connection.close();
+	}
+
+	/**
+	 * Called by the transport when the connection is gone. The seat and ID are
+	 * held for a grace period in case the client reconnects. Safe to call more
+	 * than once.
+	 */
+	void onDisconnect() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (table == null) {
+			return;
+		}
+		if (spectator) {
+			table.unwatch(connection);
+			return;
+		}
+		table.scheduleLeave(id, assignedSeat);
+	}
+}
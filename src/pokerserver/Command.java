@@ -0,0 +1,77 @@
+package pokerserver;
+
+/**
+ * One decoded client command. Transports keep a single instance per
+ * connection and overwrite it for every line or frame, so decoding an action
+ * allocates nothing.
+ */
+final class Command {
+	static final int JOIN = BinaryProtocol.JOIN;
+	static final int ACTION = BinaryProtocol.ACTION;
+	static final int DISCONNECT = BinaryProtocol.DISCONNECT;
+	static final int RESYNC = BinaryProtocol.RESYNC;
+	static final int WATCH = BinaryProtocol.WATCH;
+	static final int UNKNOWN = 0;
+	// Larger amounts are rejected rather than overflowing, in both protocols
+	static final int MAX_AMOUNT = 100_000_000;
+
+	int opcode;
+	ActionType action;
+	// The amount of an ACTION, or the table ID of a WATCH (-1 for the featured table)
+	int amount;
+	// The player ID of a JOIN
+	String text;
+
+	Command set(int opcode, ActionType action, int amount, String text) {
+		this.opcode = opcode;
+		this.action = action;
+		this.amount = amount;
+		this.text = text;
+		return this;
+	}
+
+	/**
+	 * Parses a line of the text protocol after the client's ID has been read,
+	 * e.g. "ACTION RAISE 20", "RESYNC" or "DISCONNECT".
+	 */
+	Command parseLine(String line) {
+		if (line.equals("DISCONNECT")) {
+			return set(DISCONNECT, null, 0, null);
+		}
+		if (line.equals("RESYNC")) {
+			return set(RESYNC, null, 0, null);
+		}
+		if (!line.startsWith("ACTION ")) {
+			return set(UNKNOWN, null, 0, null);
+		}
+		int start = "ACTION ".length();
+		ActionType type = ActionType.fromText(line, start);
+		if (type == null) {
+			return set(UNKNOWN, null, 0, null);
+		}
+		int i = start + type.name().length();
+		int end = line.length();
+		// Spaces around the amount are fine, as they were for Integer.parseInt after a trim, none inside it
+		while (end > i && line.charAt(end - 1) == ' ') {
+			end--;
+		}
+		if (i < end && line.charAt(i) != ' ') {
+			return set(UNKNOWN, null, 0, null);
+		}
+		while (i < end && line.charAt(i) == ' ') {
+			i++;
+		}
+		int amount = 0;
+		for (; i < end; i++) {
+			char c = line.charAt(i);
+			if (c < '0' || c > '9') {
+				return set(UNKNOWN, null, 0, null);
+			}
+			amount = amount * 10 + (c - '0');
+			if (amount > MAX_AMOUNT) {
+				return set(UNKNOWN, null, 0, null);
+			}
+		}
+		return set(ACTION, type, amount, null);
+	}
+}
@@ -1,54 +1,71 @@
 package pokerserver;
 
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
-public class CountdownTimer extends Thread {
-    private int timeRemaining;
+/**
+ * Countdown before a table's first hand, giving more players a chance to sit
+ * down. It is a single timeout on the server's {@link TimerWheel} that is
+ * pushed back whenever time is added, so a running countdown costs no thread.
+ */
+public class CountdownTimer {
+    private final PokerTable table;
+    private final TimerWheel timer;
+    private final Supplier<Integer> playerCountSupplier;
+    private long deadline;
     private boolean running;
-    private PokerServer server;
-    private Supplier<Integer> playerCountSupplier;
+    private TimerWheel.Timeout timeout;
 
-    public CountdownTimer(PokerServer server, int initialTime, Supplier<Integer> playerCountSupplier) {
-        this.server = server;
-        this.timeRemaining = initialTime;
-        this.running = true;
+    public CountdownTimer(PokerTable table, TimerWheel timer, long initialTimeMs, Supplier<Integer> playerCountSupplier) {
+        this.table = table;
+        this.timer = timer;
         this.playerCountSupplier = playerCountSupplier;
+        this.deadline = System.currentTimeMillis() + initialTimeMs;
     }
 
-    public void addTime(int additionalTime) {
-        timeRemaining += additionalTime;
+    public synchronized void start() {
+        running = true;
+        schedule();
     }
 
-    public void stopTimer() {
+    public synchronized void addTime(long additionalTimeMs) {
+        if (!running) {
+            return;
+        }
+        deadline += additionalTimeMs;
+        timeout.cancel();
+        schedule();
+    }
+
+    public synchronized void stopTimer() {
         running = false;
+        if (timeout != null) {
+            timeout.cancel();
+        }
     }
 
-    public boolean isRunning() {
+    public synchronized boolean isRunning() {
         return running;
     }
-    
-    @Override
-    public void run() {
-        int prevPlayerCount = playerCountSupplier.get();
-        while (running && timeRemaining > 0) {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            int currentPlayerCount = playerCountSupplier.get();
-            if (currentPlayerCount < 2) {
-                stopTimer();
+
+    public synchronized long getTimeRemaining() {
+        return running ? Math.max(0, deadline - System.currentTimeMillis()) : 0;
+    }
+
+    private void schedule() {
+        long delay = Math.max(0, deadline - System.currentTimeMillis());
+        timeout = timer.schedule(this::expire, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void expire() {
+        synchronized (this) {
+            if (!running) {
                 return;
             }
-            if (currentPlayerCount > prevPlayerCount) {
-                timeRemaining += 2 * (currentPlayerCount - prevPlayerCount);
-            }
-            prevPlayerCount = currentPlayerCount;
-            timeRemaining--;
+            running = false;
         }
-        if (running) {
-            server.startNewRound();
+        if (playerCountSupplier.get() >= 2) {
+            table.startRoundIfReady();
         }
     }
 }
@@ -1,30 +1,66 @@
 package pokerserver;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
+/**
+ * A reusable 52 card deck.
+ *
+ * The cards are kept as indices in a primitive array and shuffled lazily: each
+ * deal swaps a uniformly chosen undealt card into the next position (one step
+ * of a Fisher-Yates shuffle), so a hand only pays for the cards it deals and
+ * {@link #shuffle()} only has to reset a counter.
+ */
 public class Deck {
-    private List<Card> cards;
+    private final byte[] cards = new byte[52];
+    private final RandomSource random;
+    private int dealt;
+    private long dealtMask;
 
     public Deck() {
-        cards = new ArrayList<>();
-        for (Suit suit : Suit.values()) {
-            for (Rank rank : Rank.values()) {
-                cards.add(new Card(suit, rank));
-            }
+        this(RandomSource.threadLocal());
+    }
+
+    public Deck(RandomSource random) {
+        this.random = random;
+        for (int index = 0; index < cards.length; index++) {
+            cards[index] = (byte) index;
         }
-        shuffle();
     }
 
+    /**
+     * Returns every dealt card to the deck. Since each deal draws uniformly from
+     * the undealt cards, the order left behind by the previous hand does not matter.
+     */
     public void shuffle() {
-        Collections.shuffle(cards);
+        dealt = 0;
+        dealtMask = CardSet.EMPTY;
     }
 
     public Card dealCard() {
-        if (cards.isEmpty()) {
+        return Card.of(dealIndex());
+    }
+
+    /**
+     * Deals the next card and returns its index instead of the {@link Card}.
+     */
+    public int dealIndex() {
+        if (dealt == cards.length) {
             throw new IllegalStateException("No cards left in the deck");
         }
-        return cards.remove(cards.size() - 1);
+        int pick = dealt + random.nextInt(cards.length - dealt);
+        byte card = cards[pick];
+        cards[pick] = cards[dealt];
+        cards[dealt++] = card;
+        dealtMask |= CardSet.bitOf(card);
+        return card;
+    }
+
+    public int remaining() {
+        return cards.length - dealt;
+    }
+
+    /**
+     * The cards not dealt since the last shuffle, as a {@link CardSet} mask.
+     */
+    public long getUndealtMask() {
+        return CardSet.FULL_DECK & ~dealtMask;
     }
 }
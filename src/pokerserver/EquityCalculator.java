@@ -0,0 +1,312 @@
+package pokerserver;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Win and tie probabilities of hands against each other given a partial
+ * board, e.g. for showing equities when players are all in.
+ *
+ * When the number of possible runouts is at most {@link #DEFAULT_EXHAUSTIVE_LIMIT}
+ * (every spot from the flop on, and heads up preflop) every board is
+ * enumerated, skipping suit isomorphic runouts as {@link BoardEnumerator}
+ * does, and the result is exact. Small enumerations run on the calling
+ * thread. Otherwise boards are sampled. Both run as fork/join tasks, and
+ * each sampling task has its own {@link SplittableRandom} split from the
+ * caller's and its own copy of the live cards, so threads share nothing
+ * while they run. Each board is scored for every hand at once with
+ * {@link SevenCardEvaluator#evaluateAll} on {@link CardSet} masks, so nothing
+ * is allocated per board.
+ */
+public final class EquityCalculator {
+	static final int DEFAULT_ITERATIONS = 200_000;
+	static final long DEFAULT_EXHAUSTIVE_LIMIT = 2_000_000;
+	// Boards sampled by one task before it stops splitting
+	private static final int SAMPLE_CHUNK = 8_192;
+	// Enumerations up to this many runouts are not worth forking
+	private static final long SEQUENTIAL_LIMIT = 50_000;
+
+	private final ForkJoinPool pool;
+	private final int iterations;
+	private final long exhaustiveLimit;
+
+	public EquityCalculator() {
+		this(ForkJoinPool.commonPool(), DEFAULT_ITERATIONS, DEFAULT_EXHAUSTIVE_LIMIT);
+	}
+
+	/**
+	 * @param iterations      boards sampled when enumerating is too expensive
+	 * @param exhaustiveLimit largest number of boards that is enumerated
+	 */
+	public EquityCalculator(ForkJoinPool pool, int iterations, long exhaustiveLimit) {
+		this.pool = pool;
+		this.iterations = iterations;
+		this.exhaustiveLimit = exhaustiveLimit;
+	}
+
+	public Equity calculate(List<List<Card>> hands, List<Card> board) {
+		long[] masks = new long[hands.size()];
+		for (int i = 0; i < masks.length; i++) {
+			masks[i] = CardSet.of(hands.get(i));
+		}
+		return calculate(masks, CardSet.of(board), new SplittableRandom());
+	}
+
+	public Equity calculate(long[] hands, long board) {
+		return calculate(hands, board, new SplittableRandom());
+	}
+
+	/**
+	 * Calculates the equities of {@link CardSet} hands, sampling with the
+	 * given random generator if the spot is not enumerated.
+	 *
+	 * @throws IllegalArgumentException if fewer than two hands are given, the
+	 *                                  board has more than five cards or a
+	 *                                  card is used twice
+	 */
+	public Equity calculate(long[] hands, long board, SplittableRandom random) {
+		if (hands.length < 2) {
+			throw new IllegalArgumentException("At least two hands are needed");
+		}
+		int boardSize = CardSet.size(board);
+		if (boardSize > 5) {
+			throw new IllegalArgumentException("A board has at most five cards");
+		}
+		long dead = board;
+		for (long hand : hands) {
+			if ((dead & hand) != 0) {
+				throw new IllegalArgumentException("Card used twice");
+			}
+			dead |= hand;
+		}
+
+		long[] live = new long[52 - CardSet.size(dead)];
+		int count = 0;
+		for (long remaining = CardSet.FULL_DECK & ~dead; remaining != 0; remaining &= remaining - 1) {
+			live[count++] = Long.lowestOneBit(remaining);
+		}
+		int missing = 5 - boardSize;
+
+		long runouts = combinations(live.length, missing);
+		if (runouts <= exhaustiveLimit) {
+			BoardEnumerator enumerator = new BoardEnumerator(hands, board, CardSet.EMPTY);
+			if (runouts <= SEQUENTIAL_LIMIT) {
+				return enumerator.enumerate();
+			}
+			Tally tally = pool.invoke(new EnumerateTask(enumerator, hands, board, live, missing, 0,
+					live.length - missing + 1));
+			return tally.toEquity(true);
+		}
+		Tally tally = pool.invoke(new SampleTask(hands, board, live, missing, iterations, random));
+		return tally.toEquity(false);
+	}
+
+	static long combinations(int n, int k) {
+		long result = 1;
+		for (int i = 0; i < k; i++) {
+			result = result * (n - i) / (i + 1);
+		}
+		return result;
+	}
+
+	/**
+	 * Result of a calculation. A player wins a board if they alone hold the
+	 * best hand and ties it if they share it; their equity counts a tie
+	 * between k players as 1/k of a win.
+	 */
+	public static final class Equity {
+		private final long boards;
+		private final long[] wins;
+		private final long[] ties;
+		private final double[] shares;
+		private final boolean exact;
+
+		private Equity(long boards, long[] wins, long[] ties, double[] shares, boolean exact) {
+			this.boards = boards;
+			this.wins = wins;
+			this.ties = ties;
+			this.shares = shares;
+			this.exact = exact;
+		}
+
+		public int getPlayerCount() {
+			return wins.length;
+		}
+
+		public double getWinProbability(int player) {
+			return (double) wins[player] / boards;
+		}
+
+		public double getTieProbability(int player) {
+			return (double) ties[player] / boards;
+		}
+
+		public double getEquity(int player) {
+			return (wins[player] + shares[player]) / boards;
+		}
+
+		/**
+		 * Number of boards evaluated, enumerated or sampled.
+		 */
+		public long getBoards() {
+			return boards;
+		}
+
+		/**
+		 * True if every possible board was enumerated.
+		 */
+		public boolean isExact() {
+			return exact;
+		}
+	}
+
+	// Counts of one task, merged up the fork/join tree
+	static final class Tally {
+		final long[] hands;
+		final int[] strengths;
+		final int[] winners;
+		final long[] wins;
+		final long[] ties;
+		final double[] shares;
+		long boards;
+
+		Tally(long[] hands) {
+			this.hands = hands;
+			this.strengths = new int[hands.length];
+			this.winners = new int[hands.length];
+			this.wins = new long[hands.length];
+			this.ties = new long[hands.length];
+			this.shares = new double[hands.length];
+		}
+
+		void score(long board) {
+			score(board, 1);
+		}
+
+		// Scores a board standing for weight boards with the same outcome
+		void score(long board, int weight) {
+			int winnerCount = SevenCardEvaluator.evaluateAll(board, hands, strengths, winners);
+			boards += weight;
+			if (winnerCount == 1) {
+				wins[winners[0]] += weight;
+				return;
+			}
+			double share = (double) weight / winnerCount;
+			for (int w = 0; w < winnerCount; w++) {
+				ties[winners[w]] += weight;
+				shares[winners[w]] += share;
+			}
+		}
+
+		Tally merge(Tally other) {
+			boards += other.boards;
+			for (int i = 0; i < wins.length; i++) {
+				wins[i] += other.wins[i];
+				ties[i] += other.ties[i];
+				shares[i] += other.shares[i];
+			}
+			return this;
+		}
+
+		Equity toEquity(boolean exact) {
+			return new Equity(boards, wins, ties, shares, exact);
+		}
+	}
+
+	// Enumerates the boards whose first missing card is live[from] .. live[to - 1]
+	private static final class EnumerateTask extends RecursiveTask<Tally> {
+		private final BoardEnumerator enumerator;
+		private final long[] hands;
+		private final long board;
+		private final long[] live;
+		private final int missing;
+		private final int from;
+		private final int to;
+
+		EnumerateTask(BoardEnumerator enumerator, long[] hands, long board, long[] live, int missing, int from,
+				int to) {
+			this.enumerator = enumerator;
+			this.hands = hands;
+			this.board = board;
+			this.live = live;
+			this.missing = missing;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Tally compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				EnumerateTask left = new EnumerateTask(enumerator, hands, board, live, missing, from, middle);
+				left.fork();
+				Tally right = new EnumerateTask(enumerator, hands, board, live, missing, middle, to).compute();
+				return right.merge(left.join());
+			}
+			Tally tally = new Tally(hands);
+			enumerate(tally, board | live[from], from + 1, missing - 1);
+			return tally;
+		}
+
+		private void enumerate(Tally tally, long cards, int start, int remaining) {
+			if (remaining == 0) {
+				int weight = enumerator.weight(cards & ~board);
+				if (weight != 0) {
+					tally.score(cards, weight);
+				}
+				return;
+			}
+			for (int i = start; i <= live.length - remaining; i++) {
+				enumerate(tally, cards | live[i], i + 1, remaining - 1);
+			}
+		}
+	}
+
+	// Samples boards, splitting into independent chunks with their own generator and cards
+	private static final class SampleTask extends RecursiveTask<Tally> {
+		private final long[] hands;
+		private final long board;
+		private final long[] live;
+		private final int missing;
+		private final int iterations;
+		private final SplittableRandom random;
+
+		SampleTask(long[] hands, long board, long[] live, int missing, int iterations, SplittableRandom random) {
+			this.hands = hands;
+			this.board = board;
+			this.live = live;
+			this.missing = missing;
+			this.iterations = iterations;
+			this.random = random;
+		}
+
+		@Override
+		protected Tally compute() {
+			if (iterations > SAMPLE_CHUNK) {
+				int half = iterations >>> 1;
+				SampleTask left = new SampleTask(hands, board, live, missing, half, random.split());
+				left.fork();
+				Tally right = new SampleTask(hands, board, live, missing, iterations - half, random.split())
+						.compute();
+				return right.merge(left.join());
+			}
+			// The partial shuffle below leaves the cards permuted, which is fine for the next draw
+			long[] cards = live.clone();
+			Tally tally = new Tally(hands);
+			for (int n = 0; n < iterations; n++) {
+				long sampled = board;
+				for (int i = 0; i < missing; i++) {
+					int j = i + random.nextInt(cards.length - i);
+					long card = cards[j];
+					cards[j] = cards[i];
+					cards[i] = card;
+					sampled |= card;
+				}
+				tally.score(sampled);
+			}
+			return tally;
+		}
+	}
+}
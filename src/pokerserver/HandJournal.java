@@ -0,0 +1,249 @@
+package pokerserver;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of finished hands, see {@link HandRecord} for what a
+ * hand holds. Game threads only add the hand to a lock-free queue; a single
+ * writer thread copies the queued hands into a memory-mapped segment file in
+ * batches and forces it to disk at most once per {@link #FORCE_INTERVAL_MS}.
+ * As with the {@link ServerLog}, the queue is bounded and hands that do not
+ * fit are dropped and counted rather than slowing the game down.
+ *
+ * Segments are named hands-NNNNNN.journal and a new one is started when the
+ * next hand does not fit, or when the server starts. Each opens with a
+ * {@link #HEADER_SIZE} byte header:
+ *
+ * <pre>
+ * int   {@link #MAGIC}
+ * short {@link #VERSION}
+ * short unused
+ * long  creation time, epoch milliseconds
+ * </pre>
+ *
+ * followed by entries of int length, int CRC32 of the hand and the hand. The
+ * file is mapped at its full size, so an entry of length 0 marks the end.
+ * {@link HandJournalReader} reads them back.
+ */
+final class HandJournal {
+	static final int MAGIC = 0x504B484A;
+	static final short VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int ENTRY_HEADER_SIZE = 8;
+	static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+	static final int DEFAULT_CAPACITY = 16_384;
+	static final String PREFIX = "hands-";
+	static final String SUFFIX = ".journal";
+	private static final int MAX_BATCH = 256;
+	private static final long FORCE_INTERVAL_MS = 1000;
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+	private final Path directory;
+	private final ServerLog log;
+	private final long segmentSize;
+	private final int capacity;
+	private final Queue<byte[]> hands = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final Thread writer;
+	private volatile boolean running = true;
+
+	// Only touched by the writer thread, apart from the constructor
+	private final CRC32 crc = new CRC32();
+	private int segmentNumber;
+	private MappedByteBuffer segment;
+	private boolean dirty;
+	private long forcedAt;
+
+	HandJournal(Path directory, ServerLog log) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_CAPACITY, log);
+	}
+
+	/**
+	 * Opens a new segment after the last one in the directory, creating the
+	 * directory if needed.
+	 *
+	 * @param segmentSize bytes per segment file
+	 * @param capacity    most hands waiting for the writer before new ones are dropped
+	 * @param log         receives the failure that stops the writer
+	 */
+	HandJournal(Path directory, long segmentSize, int capacity, ServerLog log) throws IOException {
+		if (segmentSize <= HEADER_SIZE + ENTRY_HEADER_SIZE || segmentSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Bad segment size: " + segmentSize);
+		}
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = segmentSize;
+		this.log = log;
+		this.capacity = capacity;
+		this.segmentNumber = lastSegmentNumber(directory);
+		openNextSegment();
+		this.writer = new Thread(this::run, "hand-journal");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Queues a finished hand for the writer.
+	 */
+	void append(HandRecord hand) {
+		if (!running) {
+			dropped.incrementAndGet();
+			return;
+		}
+		if (size.incrementAndGet() > capacity) {
+			size.decrementAndGet();
+			dropped.incrementAndGet();
+			return;
+		}
+		hands.add(hand.toByteArray());
+		LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Hands written to a segment so far.
+	 */
+	long getWrittenCount() {
+		return written.get();
+	}
+
+	/**
+	 * Hands lost because the queue was full or they could not be written.
+	 */
+	long getDroppedCount() {
+		return dropped.get();
+	}
+
+	Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Writes out every hand queued so far, forces the segment to disk and
+	 * stops the writer thread.
+	 */
+	void close() {
+		running = false;
+		LockSupport.unpark(writer);
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		try {
+			while (running) {
+				if (!drain()) {
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				}
+				if (dirty && System.currentTimeMillis() - forcedAt >= FORCE_INTERVAL_MS) {
+					force();
+				}
+			}
+			while (drain()) {
+				// Write what was queued before close
+			}
+			force();
+		} catch (IOException | RuntimeException e) {
+			// Without a segment to write to, whatever comes is counted as dropped
+			log.log("Hand journal stopped, hands are dropped from now on", e);
+			running = false;
+			while (hands.poll() != null) {
+				size.decrementAndGet();
+				dropped.incrementAndGet();
+			}
+		}
+	}
+
+	// Writes up to one batch, returns false if there was nothing to write
+	private boolean drain() throws IOException {
+		int count = 0;
+		byte[] hand;
+		while (count < MAX_BATCH && (hand = hands.poll()) != null) {
+			size.decrementAndGet();
+			write(hand);
+			count++;
+		}
+		return count > 0;
+	}
+
+	private void write(byte[] hand) throws IOException {
+		int entrySize = ENTRY_HEADER_SIZE + hand.length;
+		if (HEADER_SIZE + entrySize > segmentSize) {
+			dropped.incrementAndGet();
+			return;
+		}
+		if (segment.remaining() < entrySize) {
+			force();
+			openNextSegment();
+		}
+		crc.reset();
+		crc.update(hand, 0, hand.length);
+		int start = segment.position();
+		// A reader tailing the segment stops at a length of 0, so the length goes in last
+		segment.position(start + 4);
+		segment.putInt((int) crc.getValue());
+		segment.put(hand);
+		segment.putInt(start, hand.length);
+		written.incrementAndGet();
+		dirty = true;
+	}
+
+	private void force() {
+		if (dirty) {
+			segment.force();
+			dirty = false;
+		}
+		forcedAt = System.currentTimeMillis();
+	}
+
+	private void openNextSegment() throws IOException {
+		segmentNumber++;
+		Path file = directory.resolve(segmentName(segmentNumber));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			// The mapping outlives the channel, and grows the file to its full size
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		}
+		segment.putInt(MAGIC);
+		segment.putShort(VERSION);
+		segment.putShort((short) 0);
+		segment.putLong(System.currentTimeMillis());
+		dirty = true;
+	}
+
+	static String segmentName(int number) {
+		return String.format("%s%06d%s", PREFIX, number, SUFFIX);
+	}
+
+	private static int lastSegmentNumber(Path directory) throws IOException {
+		int last = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					last = Math.max(last,
+							Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// Not one of ours
+				}
+			}
+		}
+		return last;
+	}
+}
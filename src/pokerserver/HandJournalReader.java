@@ -0,0 +1,161 @@
+package pokerserver;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Prints the hands of {@link HandJournal} segments as text, one event per
+ * line, checking each hand against its CRC. Takes segment files or
+ * directories of them, which are read in order.
+ */
+public final class HandJournalReader {
+
+	private HandJournalReader() {
+	}
+
+	/**
+	 * Prints every hand of one segment, returns how many were intact.
+	 *
+	 * @throws IOException if the file is not a journal segment
+	 */
+	static int print(Path segmentFile, PrintStream out) throws IOException {
+		MappedByteBuffer segment;
+		try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+			segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (segment.remaining() < HandJournal.HEADER_SIZE || segment.getInt() != HandJournal.MAGIC) {
+			throw new IOException(segmentFile + " is not a hand journal");
+		}
+		short version = segment.getShort();
+		if (version != HandJournal.VERSION) {
+			throw new IOException(segmentFile + " has unknown version " + version);
+		}
+		segment.getShort();
+		out.println("# " + segmentFile.getFileName() + " created " + Instant.ofEpochMilli(segment.getLong()));
+
+		CRC32 crc = new CRC32();
+		int intact = 0;
+		while (segment.remaining() >= HandJournal.ENTRY_HEADER_SIZE) {
+			int length = segment.getInt();
+			if (length <= 0 || length > segment.remaining() - 4) {
+				// 0 is the end of what was written, anything else a torn entry
+				break;
+			}
+			int checksum = segment.getInt();
+			ByteBuffer hand = (ByteBuffer) segment.slice().limit(length);
+			segment.position(segment.position() + length);
+			crc.reset();
+			for (int i = 0; i < length; i++) {
+				crc.update(hand.get(i));
+			}
+			if ((int) crc.getValue() != checksum) {
+				out.println("# corrupt hand of " + length + " bytes skipped");
+				continue;
+			}
+			try {
+				printHand(hand, out);
+				intact++;
+			} catch (BufferUnderflowException | IllegalArgumentException e) {
+				out.println("# unreadable hand: " + e);
+			}
+		}
+		return intact;
+	}
+
+	private static void printHand(ByteBuffer hand, PrintStream out) {
+		long startedAt = hand.getLong();
+		int roundId = hand.getInt();
+		int tableId = hand.getShort();
+		int dealerSeat = hand.get();
+		int players = hand.get() & 0xFF;
+		out.println("HAND " + roundId + " table " + tableId + " at " + Instant.ofEpochMilli(startedAt) + " dealer "
+				+ dealerSeat);
+		for (int i = 0; i < players; i++) {
+			int seat = hand.get();
+			byte[] id = new byte[hand.get() & 0xFF];
+			hand.get(id);
+			out.println("  SEAT " + seat + " " + new String(id, StandardCharsets.UTF_8) + " " + hand.getInt());
+		}
+		while (hand.hasRemaining()) {
+			byte tag = hand.get();
+			switch (tag) {
+			case HandRecord.HOLE:
+				out.println("  HOLE " + hand.get() + " " + card(hand.get()));
+				break;
+			case HandRecord.BLIND:
+				out.println("  BLIND " + hand.get() + " " + hand.getInt());
+				break;
+			case HandRecord.BURN:
+				out.println("  BURN " + card(hand.get()));
+				break;
+			case HandRecord.BOARD:
+				out.println("  BOARD " + card(hand.get()));
+				break;
+			case HandRecord.ACTION:
+				int seat = hand.get();
+				ActionType action = ActionType.fromOrdinal(hand.get());
+				int raise = hand.getInt();
+				int bet = hand.getInt();
+				int elapsedMs = hand.getInt();
+				out.println("  ACTION " + seat + " " + action + (action == ActionType.RAISE ? " " + raise : "")
+						+ " bet " + bet + " +" + elapsedMs + "ms");
+				break;
+			case HandRecord.AWARD:
+				out.println("  AWARD " + hand.get() + " " + hand.getInt() + " strength " + hand.getInt());
+				break;
+			default:
+				throw new IllegalArgumentException("unknown event " + tag);
+			}
+		}
+	}
+
+	private static String card(int index) {
+		if (index < 0 || index >= 52) {
+			throw new IllegalArgumentException("bad card " + index);
+		}
+		return Card.of(index).getCode();
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: HandJournalReader segment-or-directory ...");
+			System.exit(1);
+		}
+		List<Path> segments = new ArrayList<>();
+		for (String arg : args) {
+			Path path = Paths.get(arg);
+			if (Files.isDirectory(path)) {
+				List<Path> files = new ArrayList<>();
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(path,
+						HandJournal.PREFIX + "*" + HandJournal.SUFFIX)) {
+					stream.forEach(files::add);
+				}
+				// Segment numbers are zero padded, so names sort in writing order
+				Collections.sort(files);
+				segments.addAll(files);
+			} else {
+				segments.add(path);
+			}
+		}
+		int hands = 0;
+		for (Path segment : segments) {
+			hands += print(segment, System.out);
+		}
+		System.out.println("# " + hands + " hands in " + segments.size() + " segments");
+	}
+}
@@ -0,0 +1,147 @@
+package pokerserver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary history of one hand, built by its {@link PokerGame} under the game's
+ * lock and handed to the {@link HandJournal} once the pot is awarded. Writing
+ * an event only copies a few bytes into a growing array, nothing touches the
+ * disk on the game thread.
+ *
+ * All numbers are big-endian. The record opens with the hand's header:
+ *
+ * <pre>
+ * long   start time, epoch milliseconds
+ * int    round ID
+ * short  table ID
+ * byte   dealer seat
+ * byte   player count, then per player:
+ *        byte seat, byte ID length, ID in UTF-8, int chips before the blinds
+ * </pre>
+ *
+ * followed by events in the order they happened, each a tag byte and its
+ * fields. Cards are {@link Card#getIndex()} bytes, seats are seat numbers.
+ */
+final class HandRecord {
+	// A hole card, in dealing order: seat, card
+	static final byte HOLE = 1;
+	// A blind posted: seat, int amount
+	static final byte BLIND = 2;
+	// A card burnt before a street: card
+	static final byte BURN = 3;
+	// A community card: card
+	static final byte BOARD = 4;
+	// An action applied: seat, ActionType ordinal, int raise, int bet on the street after it, int ms since start
+	static final byte ACTION = 5;
+	// A share of the pot won: seat, int amount, int hand strength (0 when nobody else was left)
+	static final byte AWARD = 6;
+
+	private static final int INITIAL_SIZE = 256;
+
+	private final long startedAt;
+	private byte[] bytes = new byte[INITIAL_SIZE];
+	private int size;
+
+	HandRecord(int roundId, int tableId, long startedAt) {
+		this.startedAt = startedAt;
+		putLong(startedAt);
+		putInt(roundId);
+		putShort(tableId);
+	}
+
+	/**
+	 * Completes the header, once the dealer is known and before any event.
+	 */
+	void players(int dealerSeat, List<Player> players) {
+		putByte(dealerSeat);
+		putByte(players.size());
+		for (Player player : players) {
+			byte[] id = player.getId().getBytes(StandardCharsets.UTF_8);
+			// IDs are short, the cap only keeps the length in its byte
+			int length = Math.min(id.length, 255);
+			putByte(player.getSeatNumber());
+			putByte(length);
+			ensureCapacity(length);
+			System.arraycopy(id, 0, bytes, size, length);
+			size += length;
+			putInt(player.getChips());
+		}
+	}
+
+	void holeCard(int seat, Card card) {
+		putByte(HOLE);
+		putByte(seat);
+		putByte(card.getIndex());
+	}
+
+	void blind(int seat, int amount) {
+		putByte(BLIND);
+		putByte(seat);
+		putInt(amount);
+	}
+
+	void burn(Card card) {
+		putByte(BURN);
+		putByte(card.getIndex());
+	}
+
+	void board(Card card) {
+		putByte(BOARD);
+		putByte(card.getIndex());
+	}
+
+	void action(int seat, ActionType action, int raise, int bet) {
+		putByte(ACTION);
+		putByte(seat);
+		putByte(action.ordinal());
+		putInt(raise);
+		putInt(bet);
+		putInt((int) (System.currentTimeMillis() - startedAt));
+	}
+
+	void award(int seat, int amount, int strength) {
+		putByte(AWARD);
+		putByte(seat);
+		putInt(amount);
+		putInt(strength);
+	}
+
+	/**
+	 * Copies the record so far, the journal writes it as one entry.
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(bytes, size);
+	}
+
+	private void putByte(int value) {
+		ensureCapacity(1);
+		bytes[size++] = (byte) value;
+	}
+
+	private void putShort(int value) {
+		ensureCapacity(2);
+		bytes[size++] = (byte) (value >>> 8);
+		bytes[size++] = (byte) value;
+	}
+
+	private void putInt(int value) {
+		ensureCapacity(4);
+		bytes[size++] = (byte) (value >>> 24);
+		bytes[size++] = (byte) (value >>> 16);
+		bytes[size++] = (byte) (value >>> 8);
+		bytes[size++] = (byte) value;
+	}
+
+	private void putLong(long value) {
+		putInt((int) (value >>> 32));
+		putInt((int) value);
+	}
+
+	private void ensureCapacity(int extra) {
+		if (size + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+		}
+	}
+}
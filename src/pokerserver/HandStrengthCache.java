@@ -0,0 +1,209 @@
+package pokerserver;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Bounded cache of hand strengths keyed by the {@link CardSet} mask of the
+ * cards, for workloads where the same combinations come back again and again
+ * (simulations, replaying hand histories). Plug it into a
+ * {@link PokerHandResolver}, or leave it out: {@link SevenCardEvaluator} alone
+ * takes a few nanoseconds, so a cache only pays off when probes mostly hit
+ * and stay in the CPU caches.
+ *
+ * Entries live in sets of {@link #WAYS} slots picked by a hash of the mask,
+ * and a full set evicts with CLOCK: a slot read since the hand last passed it
+ * gets a second chance. Everything is kept in primitive arrays, so a probe
+ * allocates nothing.
+ */
+public abstract class HandStrengthCache {
+	static final int WAYS = 4;
+	private static final long EMPTY = -1L;
+
+	final long[] keys;
+	final int[] strengths;
+	// Second chance bits, one per slot
+	final boolean[] referenced;
+	// CLOCK hand of each set
+	final byte[] clockHands;
+	final int setMask;
+
+	HandStrengthCache(int capacity) {
+		int needed = Math.max(1, (capacity + WAYS - 1) / WAYS);
+		int sets = needed == 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+		this.setMask = sets - 1;
+		this.keys = new long[sets * WAYS];
+		this.strengths = new int[sets * WAYS];
+		this.referenced = new boolean[sets * WAYS];
+		this.clockHands = new byte[sets];
+		// No mask has every bit set, so this marks a free slot
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * A cache for one thread at a time.
+	 *
+	 * @param capacity number of entries, rounded up to a power of two of at least {@link #WAYS}
+	 */
+	public static HandStrengthCache local(int capacity) {
+		return new Local(capacity);
+	}
+
+	/**
+	 * A cache shared by many threads, e.g. every table of a server. Lookups
+	 * are optimistic reads that take no lock unless they race with an insert.
+	 *
+	 * @param capacity number of entries, rounded up to a power of two of at least {@link #WAYS}
+	 */
+	public static HandStrengthCache concurrent(int capacity) {
+		return new Concurrent(capacity);
+	}
+
+	/**
+	 * Returns the strength of the cards, evaluating and caching it on a miss.
+	 */
+	public abstract int getStrength(long cards);
+
+	public abstract long getHits();
+
+	public abstract long getMisses();
+
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	// First slot of the set for the mask
+	final int setOf(long cards) {
+		// Masks differ in few bits, so spread them before picking a set
+		long hash = cards * 0x9E3779B97F4A7C15L;
+		return ((int) (hash >>> 40) & setMask) * WAYS;
+	}
+
+	// Returns the slot holding the mask in the set, or -1; reads only
+	final int find(int set, long cards) {
+		for (int i = set; i < set + WAYS; i++) {
+			if (keys[i] == cards) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	final void insert(int set, long cards, int strength) {
+		int slot = set;
+		// A free slot first, CLOCK only runs once the set is full
+		while (slot < set + WAYS && keys[slot] != EMPTY) {
+			slot++;
+		}
+		if (slot == set + WAYS) {
+			int setIndex = set / WAYS;
+			int hand = clockHands[setIndex];
+			while (referenced[set + hand]) {
+				referenced[set + hand] = false;
+				hand = (hand + 1) & (WAYS - 1);
+			}
+			slot = set + hand;
+			clockHands[setIndex] = (byte) ((hand + 1) & (WAYS - 1));
+		}
+		keys[slot] = cards;
+		strengths[slot] = strength;
+	}
+
+	private static final class Local extends HandStrengthCache {
+		private long hits;
+		private long misses;
+
+		Local(int capacity) {
+			super(capacity);
+		}
+
+		@Override
+		public int getStrength(long cards) {
+			int set = setOf(cards);
+			int slot = find(set, cards);
+			if (slot >= 0) {
+				hits++;
+				referenced[slot] = true;
+				return strengths[slot];
+			}
+			misses++;
+			int strength = SevenCardEvaluator.evaluate(cards);
+			insert(set, cards, strength);
+			return strength;
+		}
+
+		@Override
+		public long getHits() {
+			return hits;
+		}
+
+		@Override
+		public long getMisses() {
+			return misses;
+		}
+	}
+
+	private static final class Concurrent extends HandStrengthCache {
+		private static final int STRIPES = 64;
+
+		// Sets are striped over the locks by their index
+		private final StampedLock[] locks = new StampedLock[STRIPES];
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+
+		Concurrent(int capacity) {
+			super(capacity);
+			for (int i = 0; i < STRIPES; i++) {
+				locks[i] = new StampedLock();
+			}
+		}
+
+		@Override
+		public int getStrength(long cards) {
+			int set = setOf(cards);
+			StampedLock lock = locks[(set / WAYS) & (STRIPES - 1)];
+			long stamp = lock.tryOptimisticRead();
+			int slot = find(set, cards);
+			int strength = slot >= 0 ? strengths[slot] : -1;
+			if (!lock.validate(stamp)) {
+				// An insert into the stripe raced with the read, read again under the lock
+				stamp = lock.readLock();
+				try {
+					slot = find(set, cards);
+					strength = slot >= 0 ? strengths[slot] : -1;
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+			if (strength >= 0) {
+				hits.increment();
+				// Set without the lock on purpose: a lost bit, or one landing on the
+				// entry that just replaced this one, only changes what is evicted next
+				referenced[slot] = true;
+				return strength;
+			}
+			misses.increment();
+			strength = SevenCardEvaluator.evaluate(cards);
+			stamp = lock.writeLock();
+			try {
+				if (find(set, cards) < 0) {
+					insert(set, cards, strength);
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+			return strength;
+		}
+
+		@Override
+		public long getHits() {
+			return hits.sum();
+		}
+
+		@Override
+		public long getMisses() {
+			return misses.sum();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package pokerserver;
+
+/**
+ * A player's hand as the cards come, hole cards first and then each street of
+ * the board. Every card updates one suit's rank mask, and the made hand and
+ * the draws are read off {@link SevenCardEvaluator}'s tables right away, so
+ * the current strength is always known without evaluating the whole hand
+ * again on the next street or at the showdown.
+ */
+final class HandTracker {
+	private static final int SUITS = 4;
+
+	// Rank mask of each suit, in CardSet order
+	private final int[] suits = new int[SUITS];
+	private int cardCount;
+	private int strength;
+	// Suit with four cards, or -1
+	private int flushDrawSuit = -1;
+
+	void add(Card card) {
+		add(card.getMask());
+	}
+
+	/**
+	 * Adds a card given as a one bit {@link CardSet} mask.
+	 */
+	void add(long card) {
+		int bit = Long.numberOfTrailingZeros(card);
+		int suit = bit / CardSet.SUIT_BITS;
+		suits[suit] |= 1 << (bit % CardSet.SUIT_BITS);
+		cardCount++;
+		strength = SevenCardEvaluator.evaluate(suits[0], suits[1], suits[2], suits[3]);
+		int suited = Integer.bitCount(suits[suit]);
+		if (suited == 4) {
+			flushDrawSuit = suit;
+		} else if (suited == 5) {
+			flushDrawSuit = -1;
+		}
+	}
+
+	void reset() {
+		for (int suit = 0; suit < SUITS; suit++) {
+			suits[suit] = 0;
+		}
+		cardCount = 0;
+		strength = 0;
+		flushDrawSuit = -1;
+	}
+
+	/**
+	 * Strength of the best hand the cards make so far, comparable with
+	 * {@link SevenCardEvaluator#evaluate(long)}; 0 before the first card.
+	 */
+	int getStrength() {
+		return strength;
+	}
+
+	HandRank getHandRank() {
+		return cardCount == 0 ? null : SevenCardEvaluator.getHandRank(strength);
+	}
+
+	int getCardCount() {
+		return cardCount;
+	}
+
+	/**
+	 * True if one more card of a suit would make a flush that is not made yet.
+	 */
+	boolean hasFlushDraw() {
+		return flushDrawSuit >= 0 && cardCount < 7;
+	}
+
+	/**
+	 * Number of ranks that would complete a straight not made yet: two for an
+	 * open ended draw, one for a gutshot.
+	 */
+	int getStraightDrawRanks() {
+		if (cardCount >= 7) {
+			return 0;
+		}
+		return Integer.bitCount(SevenCardEvaluator.straightOuts(suits[0] | suits[1] | suits[2] | suits[3]));
+	}
+}
@@ -0,0 +1,126 @@
+package pokerserver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of non-negative values, in the spirit of HdrHistogram:
+ * values below {@link #SUB_COUNT} get a bucket each, and every power of two
+ * above is split into {@link #SUB_COUNT} / 2 buckets, so any value is known
+ * within about 3% over the whole long range with fewer than a thousand
+ * counters.
+ *
+ * Recording is one atomic increment plus two adder updates, with no lock and
+ * no allocation, so it can stay on in production. Reading takes a
+ * {@link Snapshot}, which is not atomic with concurrent recording but close
+ * enough for monitoring.
+ *
+ * Public so the load generator can report its latencies the same way.
+ */
+public final class Histogram {
+	private static final int SUB_BITS = 5;
+	static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int HALF = SUB_COUNT >>> 1;
+	// Values up to 2^63 - 1 have their highest bit at 62 at most
+	private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * HALF;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records a value, negative values count as 0.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucketOf(value));
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	static int bucketOf(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		// Keeps the top SUB_BITS bits of the value, the first of which is always set
+		int shift = magnitude - (SUB_BITS - 1);
+		return SUB_COUNT + (magnitude - SUB_BITS) * HALF + (int) (value >>> shift) - HALF;
+	}
+
+	static long lowerBound(int bucket) {
+		if (bucket < SUB_COUNT) {
+			return bucket;
+		}
+		int group = (bucket - SUB_COUNT) / HALF;
+		int offset = (bucket - SUB_COUNT) % HALF;
+		return (long) (HALF + offset) << (group + 1);
+	}
+
+	public Snapshot snapshot() {
+		long[] copy = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = counts.get(i);
+			count += copy[i];
+		}
+		return new Snapshot(copy, count, sum.sum(), max.get());
+	}
+
+	/**
+	 * Counts of a histogram at one point in time.
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		private Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		/**
+		 * Returns the value at the percentile (0 to 100): the middle of the
+		 * bucket holding it, never more than the largest value recorded.
+		 */
+		public long percentile(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					long lower = lowerBound(i);
+					long width = i + 1 < counts.length ? lowerBound(i + 1) - lower : 1;
+					return Math.min(max, lower + width / 2);
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package pokerserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves {@link ServerMetrics} in the Prometheus text format on
+ * http://localhost:port/metrics. It only listens on the loopback address, so
+ * a scraper or agent has to run on the same host, and it answers on one
+ * thread of its own, away from the game.
+ */
+final class MetricsEndpoint {
+	static final String PATH = "/metrics";
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final ServerMetrics metrics;
+	private final HttpServer httpServer;
+
+	MetricsEndpoint(ServerMetrics metrics, int port) throws IOException {
+		this.metrics = metrics;
+		this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		httpServer.createContext(PATH, this::handle);
+		httpServer.setExecutor(Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "metrics-http");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	void start() {
+		httpServer.start();
+	}
+
+	void stop() {
+		httpServer.stop(0);
+	}
+
+	int getPort() {
+		return httpServer.getAddress().getPort();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equals("GET")) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = render().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	String render() {
+		StringBuilder out = new StringBuilder(4096);
+		metrics.collect(new ServerMetrics.Visitor() {
+			@Override
+			public void counter(String name, String help, long value) {
+				header(name, help, "counter");
+				out.append(name).append(' ').append(value).append('\n');
+			}
+
+			@Override
+			public void gauge(String name, String help, double value) {
+				header(name, help, "gauge");
+				out.append(name).append(' ').append(format(value)).append('\n');
+			}
+
+			@Override
+			public void labeledCounter(String name, String help, String label, Map<String, Long> values) {
+				header(name, help, "counter");
+				for (Map.Entry<String, Long> value : values.entrySet()) {
+					out.append(name).append('{').append(label).append("=\"").append(value.getKey()).append("\"} ")
+							.append(value.getValue()).append('\n');
+				}
+			}
+
+			@Override
+			public void summary(String name, String help, Histogram.Snapshot snapshot, double scale) {
+				header(name, help, "summary");
+				for (double quantile : ServerMetrics.QUANTILES) {
+					out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+							.append(format(snapshot.percentile(quantile * 100) * scale)).append('\n');
+				}
+				out.append(name).append("_sum ").append(format(snapshot.getSum() * scale)).append('\n');
+				out.append(name).append("_count ").append(snapshot.getCount()).append('\n');
+			}
+
+			private void header(String name, String help, String type) {
+				out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+				out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+			}
+		});
+		return out.toString();
+	}
+
+	private static String format(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+}
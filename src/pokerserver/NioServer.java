@@ -0,0 +1,319 @@
+package pokerserver;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking transport: a single selector thread accepts, reads and writes
+ * every client. Each connection only costs a read and a write buffer and an
+ * {@link OutboundQueue}, and lines are framed on '\n' and handed to the
+ * connection's {@link ClientSession} on the selector thread. Connections that
+ * negotiate the {@link BinaryProtocol} switch to length prefixed frames.
+ */
+public class NioServer implements Runnable {
+	private static final int READ_BUFFER_SIZE = 4096;
+	private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+	private final PokerServer server;
+	private final int port;
+	private Selector selector;
+	// Connections with new output, registered for OP_WRITE by the selector thread
+	private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+	private volatile boolean running = true;
+
+	public NioServer(PokerServer server, int port) {
+		this.server = server;
+		this.port = port;
+	}
+
+	@Override
+	public void run() {
+		try (Selector selector = Selector.open(); ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+			this.selector = selector;
+			serverChannel.bind(new InetSocketAddress(port));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+			while (running) {
+				try {
+					selectOnce(serverChannel);
+				} catch (RuntimeException e) {
+					// This is the only selector thread, it has to outlive any one bug
+					server.log("Selector error: " + e);
+				}
+			}
+		} catch (IOException e) {
+			server.log("NIO server stopped", e);
+		}
+	}
+
+	private void selectOnce(ServerSocketChannel serverChannel) throws IOException {
+		selector.select();
+		registerPendingWrites();
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			if (!key.isValid()) {
+				continue;
+			}
+			if (key.isAcceptable()) {
+				try {
+					accept(serverChannel);
+				} catch (IOException e) {
+					// E.g. out of file descriptors, the next clients may still get in
+					server.log("Accept failed: " + e);
+				}
+				continue;
+			}
+			Connection connection = (Connection) key.attachment();
+			try {
+				if (key.isReadable()) {
+					connection.read();
+				}
+				if (key.isValid() && key.isWritable()) {
+					connection.write();
+				}
+			} catch (IOException e) {
+				connection.closeNow();
+			} catch (RuntimeException e) {
+				// Only the connection that hit it is dropped
+				server.log("Closing " + connection.channel.socket().getRemoteSocketAddress() + " after " + e);
+				connection.closeNow();
+			}
+		}
+	}
+
+	void stop() {
+		running = false;
+		if (selector != null) {
+			selector.wakeup();
+		}
+	}
+
+	private void accept(ServerSocketChannel serverChannel) throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		Connection connection = new Connection(channel);
+		connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+	}
+
+	private void registerPendingWrites() {
+		Connection connection;
+		while ((connection = pendingWrites.poll()) != null) {
+			if (connection.abort) {
+				connection.closeNow();
+			} else if (connection.key.isValid()) {
+				connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+			}
+		}
+	}
+
+	private class Connection implements ClientConnection {
+		private final SocketChannel channel;
+		private final ClientSession session;
+		private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		private final OutboundQueue outbound;
+		// Reused for every frame read in binary mode
+		private final Command command = new Command();
+		// Coalesced messages, kept in read mode between writes so what the socket did not take stays in it
+		private ByteBuffer writeBuffer = (ByteBuffer) ByteBuffer.allocate(WRITE_BUFFER_SIZE).flip();
+		// Message taken from the queue that did not fit in the last batch
+		private OutboundMessage carry;
+		// Only touched on the selector thread
+		private boolean binary = false;
+		// Set while the connection is queued for, or registered for, OP_WRITE
+		private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+		private SelectionKey key;
+		private volatile boolean closeAfterFlush = false;
+		// Set for a slow consumer, its backlog is dropped rather than flushed
+		private volatile boolean abort = false;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+			this.session = new ClientSession(server, this);
+			this.outbound = new OutboundQueue(OutboundQueue.DEFAULT_CAPACITY, server.getSlowConsumerPolicy(),
+					server.getMetrics().outboundQueued);
+			server.getMetrics().connectionsOpened.increment();
+		}
+
+		void read() throws IOException {
+			int read = channel.read(readBuffer);
+			if (read == -1) {
+				closeNow();
+				return;
+			}
+			readBuffer.flip();
+			if (!binary) {
+				readLines();
+			}
+			// The negotiation line may be followed by frames in the same read
+			if (binary && channel.isOpen()) {
+				readFrames();
+			}
+			if (!channel.isOpen()) {
+				return;
+			}
+			readBuffer.compact();
+			if (!readBuffer.hasRemaining()) {
+				// A line longer than the whole buffer is not part of the protocol
+				closeNow();
+			}
+		}
+
+		private void readLines() {
+			int lineStart = readBuffer.position();
+			for (int i = lineStart; i < readBuffer.limit(); i++) {
+				if (readBuffer.get(i) == '\n') {
+					int lineEnd = i;
+					if (lineEnd > lineStart && readBuffer.get(lineEnd - 1) == '\r') {
+						lineEnd--;
+					}
+					session.onLine(new String(readBuffer.array(), lineStart, lineEnd - lineStart,
+							StandardCharsets.UTF_8));
+					lineStart = i + 1;
+					if (!channel.isOpen() || binary) {
+						break;
+					}
+				}
+			}
+			readBuffer.position(lineStart);
+		}
+
+		private void readFrames() {
+			try {
+				while (BinaryProtocol.decode(readBuffer, command)) {
+					session.onCommand(command);
+					if (!channel.isOpen()) {
+						return;
+					}
+				}
+			} catch (IllegalArgumentException | BufferUnderflowException e) {
+				closeNow();
+			}
+		}
+
+		void write() throws IOException {
+			while (true) {
+				if (!writeBuffer.hasRemaining()) {
+					// Coalesce everything queued so far into one buffer and one write
+					writeBuffer.clear();
+					fillWriteBuffer();
+					writeBuffer.flip();
+					if (!writeBuffer.hasRemaining()) {
+						break;
+					}
+				}
+				channel.write(writeBuffer);
+				if (writeBuffer.hasRemaining()) {
+					// Socket buffer is full, wait for the next OP_WRITE
+					return;
+				}
+			}
+			if (closeAfterFlush) {
+				closeNow();
+				return;
+			}
+			key.interestOps(SelectionKey.OP_READ);
+			writeScheduled.set(false);
+			// A send may have queued a line after the drain but before the flag was cleared
+			if (!outbound.isEmpty() && writeScheduled.compareAndSet(false, true)) {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		}
+
+		// Copies the encoded messages into the write buffer, which is in write mode
+		private void fillWriteBuffer() {
+			OutboundMessage message = carry;
+			carry = null;
+			if (message == null) {
+				message = outbound.poll();
+			}
+			int filled = 0;
+			while (message != null) {
+				ByteBuffer encoded = binary ? message.getBinaryFrame() : ByteBuffer.wrap(message.getTextBytes());
+				int size = encoded.remaining();
+				if (size > writeBuffer.remaining()) {
+					if (writeBuffer.position() > 0) {
+						carry = message;
+						break;
+					}
+					// A single message larger than the buffer, which then keeps the new size
+					writeBuffer = ByteBuffer.allocate(size);
+				}
+				writeBuffer.put(encoded);
+				filled++;
+				message = outbound.poll();
+			}
+			if (filled > 0) {
+				server.getMetrics().outboundBatch.record(filled);
+			}
+		}
+
+		@Override
+		public void send(OutboundMessage message) {
+			if (!outbound.offer(message)) {
+				server.log("Disconnecting slow client " + channel.socket().getRemoteSocketAddress());
+				abort = true;
+				// Closing has to happen on the selector thread
+				scheduleWrite(true);
+				return;
+			}
+			scheduleWrite(false);
+		}
+
+		@Override
+		public boolean enableBinary() {
+			binary = true;
+			return true;
+		}
+
+		@Override
+		public void setSnapshot(Supplier<String> snapshot) {
+			outbound.setSnapshot(snapshot);
+		}
+
+		@Override
+		public void close() {
+			closeAfterFlush = true;
+			scheduleWrite(true);
+		}
+
+		// Only the first send after a flush has to wake the selector
+		private void scheduleWrite(boolean force) {
+			if (writeScheduled.compareAndSet(false, true) || force) {
+				pendingWrites.add(this);
+				selector.wakeup();
+			}
+		}
+
+		void closeNow() {
+			key.cancel();
+			if (channel.isOpen()) {
+				server.getMetrics().connectionsClosed.increment();
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Already closed by the peer
+			}
+			session.onDisconnect();
+			outbound.discard();
+		}
+	}
+}
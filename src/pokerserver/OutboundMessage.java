@@ -0,0 +1,54 @@
+package pokerserver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A server message on its way to one or more clients. Each wire encoding is
+ * produced at most once and then shared by every recipient, so broadcasting
+ * to a table costs one encoding per protocol instead of one per client.
+ */
+final class OutboundMessage {
+	private final String text;
+	// Both encodings are computed lazily; a race only computes the same bytes twice
+	private volatile byte[] textBytes;
+	private volatile ByteBuffer binaryFrame;
+
+	OutboundMessage(String text) {
+		this.text = text;
+	}
+
+	String getText() {
+		return text;
+	}
+
+	/**
+	 * The message as a text protocol line, including the trailing newline.
+	 */
+	byte[] getTextBytes() {
+		byte[] bytes = textBytes;
+		if (bytes == null) {
+			bytes = (text + "\n").getBytes(StandardCharsets.UTF_8);
+			textBytes = bytes;
+		}
+		return bytes;
+	}
+
+	/**
+	 * The message as a binary protocol frame. Returns a new view on the shared
+	 * bytes, so the caller may consume it.
+	 */
+	ByteBuffer getBinaryFrame() {
+		ByteBuffer frame = binaryFrame;
+		if (frame == null) {
+			frame = BinaryProtocol.encodeMessage(text).asReadOnlyBuffer();
+			binaryFrame = frame;
+		}
+		return frame.duplicate();
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
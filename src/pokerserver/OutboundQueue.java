@@ -0,0 +1,154 @@
+package pokerserver;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded queue of messages waiting to be written to one client. Game threads only
+ * ever offer to it, the transport drains it in batches and writes each batch
+ * with a single flush, so a client with a full TCP window never blocks the
+ * table that is broadcasting to it.
+ */
+class OutboundQueue {
+	static final int DEFAULT_CAPACITY = 1024;
+
+	private final BlockingQueue<OutboundMessage> messages;
+	private final SlowConsumerPolicy policy;
+	private volatile Supplier<String> snapshot;
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong resyncs = new AtomicLong();
+	// Server wide count of queued messages, for the metrics
+	private final LongAdder queued;
+	private volatile boolean discarding = false;
+
+	OutboundQueue(int capacity, SlowConsumerPolicy policy, LongAdder queued) {
+		this.messages = new ArrayBlockingQueue<>(capacity);
+		this.policy = policy;
+		this.queued = queued;
+	}
+
+	/**
+	 * Queues a message, applying the slow consumer policy when the queue is full.
+	 * Returns false if the client has to be disconnected.
+	 */
+	boolean offer(OutboundMessage message) {
+		if (discarding) {
+			return true;
+		}
+		if (messages.offer(message)) {
+			queued.increment();
+			if (discarding) {
+				// Raced with discard(), which may have missed this message
+				clear();
+			}
+			return true;
+		}
+		switch (policy) {
+		case DROP:
+			dropped.incrementAndGet();
+			return true;
+		case RESYNC:
+			Supplier<String> snapshot = this.snapshot;
+			if (snapshot == null) {
+				return false;
+			}
+			clear();
+			if (messages.offer(new OutboundMessage(snapshot.get()))) {
+				queued.increment();
+			}
+			resyncs.incrementAndGet();
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Queues a message only if there is room, without applying the slow
+	 * consumer policy. Returns false if the queue is full.
+	 */
+	boolean offerIfRoom(OutboundMessage message) {
+		if (discarding || !messages.offer(message)) {
+			return false;
+		}
+		queued.increment();
+		if (discarding) {
+			clear();
+		}
+		return true;
+	}
+
+	/**
+	 * Sets where {@link SlowConsumerPolicy#RESYNC} gets the line that replaces the
+	 * discarded backlog.
+	 */
+	void setSnapshot(Supplier<String> snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Moves up to max queued messages into the batch without blocking.
+	 */
+	int drainTo(Collection<OutboundMessage> batch, int max) {
+		int drained = messages.drainTo(batch, max);
+		queued.add(-drained);
+		return drained;
+	}
+
+	/**
+	 * Removes the next message without waiting, returns null if there is none.
+	 */
+	OutboundMessage poll() {
+		OutboundMessage message = messages.poll();
+		if (message != null) {
+			queued.decrement();
+		}
+		return message;
+	}
+
+	/**
+	 * Waits for the next message.
+	 */
+	OutboundMessage take() throws InterruptedException {
+		OutboundMessage message = messages.take();
+		queued.decrement();
+		return message;
+	}
+
+	/**
+	 * Drops the backlog of a client that is gone, and everything offered from
+	 * now on.
+	 */
+	void discard() {
+		discarding = true;
+		clear();
+	}
+
+	private void clear() {
+		int cleared = 0;
+		while (messages.poll() != null) {
+			cleared++;
+		}
+		queued.add(-cleared);
+	}
+
+	boolean isEmpty() {
+		return messages.isEmpty();
+	}
+
+	int size() {
+		return messages.size();
+	}
+
+	long getDropped() {
+		return dropped.get();
+	}
+
+	long getResyncs() {
+		return resyncs.get();
+	}
+}
@@ -5,11 +5,13 @@ import java.util.*;
 public class Player {
     private String id;
     private List<Card> hand;
+    private final HandTracker tracker = new HandTracker();
     private int seat;
     private int chips;
     private boolean isFolded;
     private boolean isAllIn;
     private int sinkValue;
+    private long timeBankMs;
 
     public Player(String id, int seat, int initialChips) {
         this.id = id;
@@ -18,6 +20,7 @@ public class Player {
         this.hand = new ArrayList<>();
         this.isFolded = false;
         this.isAllIn = false;
+        this.timeBankMs = PokerGame.TIME_BANK_MS;
     }
     
 
@@ -29,9 +32,19 @@ public class Player {
     
     public void dealCard(Card card) {
         hand.add(card);
+        tracker.add(card);
+    }
+
+    // A board card, counted towards the hand without being one of its cards
+    void seeBoardCard(Card card) {
+        tracker.add(card);
     }
     
     void bet(int betAmount) {
+        if (betAmount < 0) {
+            // Would hand the player chips
+            throw new IllegalArgumentException("Negative bet: " + betAmount);
+        }
         if (betAmount >= chips) { // Player goes all-in
             betAmount = chips;
             setAllIn();
@@ -52,6 +65,13 @@ public class Player {
     int getSinkValue() {
     	return sinkValue;
     }
+
+    // Moves this street's bet into the pot
+    int collectBet() {
+    	int collected = sinkValue;
+    	sinkValue = 0;
+    	return collected;
+    }
     
     public boolean getFold() {
     	return isFolded;
@@ -68,8 +88,19 @@ public class Player {
         isAllIn = true;
     }
 
+    // Extra thinking time left once the base action clock has run out
+    long getTimeBank() {
+    	return timeBankMs;
+    }
+
+    void useTimeBank(long usedMs) {
+    	timeBankMs = Math.max(0, timeBankMs - usedMs);
+    }
+
     public void resetHand() {
         hand.clear();
+        tracker.reset();
+        sinkValue = 0;
         isFolded = false;
         isAllIn = false;
     }
@@ -95,4 +126,9 @@ public class Player {
 	List<Card> getHand() {
 		return hand;
 	}
+
+	// Made hand and draws with the board dealt so far
+	HandTracker getHandTracker() {
+		return tracker;
+	}
 }
@@ -1,47 +1,72 @@
 package pokerserver;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.Set;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.EnumSet;
-import java.util.Iterator;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class PokerGame {
 
-	PokerServer server;
+	PokerTable table;
 	private int roundId;
-	private static int nextRoundId = 0;
+	// Tables start hands from their own threads
+	private static final AtomicInteger nextRoundId = new AtomicInteger();
 
 	private Deck deck;
 	private List<Player> players;
-	private static int dealerPosition;
+	private int dealerPosition;
 	private List<Card> communityCards;
 
 	private Player currentPlayer;
 	private int currentBet;
 	private int pot;
-	private Object actionLock = new Object();
-	private String playerAction = null;
+	private Street street;
+	// Players who still have to act before the current street is over
+	private boolean[] needsToAct;
+	private TimerWheel.Timeout actionTimeout;
+	private long turnStartedAt;
+	private boolean finished = false;
+	// Guards every state transition, whether triggered by a client or a timeout
+	private final ReentrantLock stateLock = new ReentrantLock();
+	private final ActionQueue.Sink actionSink = this::applyAction;
+	// What happened in this hand, for the table's journal
+	private HandRecord history;
+	// Spent updating the hands still in as the board came, reported with resolveHand
+	private long evaluationNanos;
+
+	// Every action gets the base clock, then eats into the player's time bank
+	static final long ACTION_TIMEOUT_MS = 15000;
+	static final long TIME_BANK_MS = 30000;
+
+	private enum Street {
+		PREFLOP(0), FLOP(3), TURN(4), RIVER(5);
+
+		// Community cards visible on this street
+		final int boardSize;
+
+		Street(int boardSize) {
+			this.boardSize = boardSize;
+		}
 
-	public PokerGame(PokerServer server) {
+		Street next() {
+			return values()[ordinal() + 1];
+		}
+	}
+
+	public PokerGame(PokerTable table, Deck deck) {
 		// Initialize game state
-		this.server = server;
-		roundId = nextRoundId++;
-		deck = new Deck();
+		this.table = table;
+		roundId = nextRoundId.getAndIncrement();
+		this.deck = deck;
+		deck.shuffle();
 		players = new ArrayList<>();
 		dealerPosition = -1;
 		communityCards = new ArrayList<>();
 		currentBet = 0;
 		pot = 0;
-		actionLock = new Object();
-		playerAction = null;
 	}
 
 	int getRoundId() {
@@ -74,16 +99,26 @@ public class PokerGame {
 	}
 
 	void setRandomDealer() {
-		int randomIndex = new Random().nextInt(players.size());
+		int randomIndex = ThreadLocalRandom.current().nextInt(players.size());
 		dealerPosition = players.get(randomIndex).getSeatNumber();
 	}
 
-	void setNextDealer() {
-		int currentDealerIndex = findPlayerIndexBySeat(dealerPosition);
-		int nextDealerIndex = (currentDealerIndex + 1) % players.size();
+	void setNextDealer(int previousDealerPosition) {
+		// The previous dealer may have left, so move to the first seat after theirs
+		int nextDealerIndex = 0;
+		for (int i = 0; i < players.size(); i++) {
+			if (players.get(i).getSeatNumber() > previousDealerPosition) {
+				nextDealerIndex = i;
+				break;
+			}
+		}
 		dealerPosition = players.get(nextDealerIndex).getSeatNumber();
 	}
 
+	/**
+	 * Deals the hole cards. The board is dealt street by street as the betting
+	 * reaches it, see {@link #dealStreet()}.
+	 */
 	void dealCards() {
 		// Deal one card at a time for two rounds to each player
 		int currentDealerIndex = findPlayerIndexBySeat(dealerPosition);
@@ -91,30 +126,32 @@ public class PokerGame {
 
 		for (int dealRound = 0; dealRound < 2; dealRound++) {
 			for (int i = 0; i < players.size(); i++) {
-				players.get(currentPlayerIndex).dealCard(deck.dealCard());
+				Player player = players.get(currentPlayerIndex);
+				Card card = deck.dealCard();
+				player.dealCard(card);
+				history.holeCard(player.getSeatNumber(), card);
 				currentPlayerIndex = getNextPlayerIndex(currentPlayerIndex);
 			}
 		}
+	}
 
-		// Burn a card before dealing the flop
-		deck.dealCard();
-
-		// Deal three community cards for the flop
-		for (int i = 0; i < 3; i++) {
-			communityCards.add(deck.dealCard());
+	// Burns a card and deals the community cards of the street
+	private void dealStreet() {
+		history.burn(deck.dealCard());
+		while (communityCards.size() < street.boardSize) {
+			Card card = deck.dealCard();
+			communityCards.add(card);
+			history.board(card);
+			long startedAt = System.nanoTime();
+			// Only hands still in the pot need to follow the board
+			for (Player player : players) {
+				if (!player.getFold()) {
+					player.seeBoardCard(card);
+				}
+			}
+			evaluationNanos += System.nanoTime() - startedAt;
+			table.getState().dealCard(card);
 		}
-
-		// Burn a card before dealing the turn
-		deck.dealCard();
-
-		// Deal one community card for the turn
-		communityCards.add(deck.dealCard());
-
-		// Burn a card before dealing the river
-		deck.dealCard();
-
-		// Deal one community card for the river
-		communityCards.add(deck.dealCard());
 	}
 
 	void blindBets() {
@@ -129,117 +166,261 @@ public class PokerGame {
 		smallBlindPlayer.bet(1);
 		// For player at the big blind index they have to bet 2
 		bigBlindPlayer.bet(2);
+		history.blind(smallBlindPlayer.getSeatNumber(), smallBlindPlayer.getSinkValue());
+		history.blind(bigBlindPlayer.getSeatNumber(), bigBlindPlayer.getSinkValue());
+	}
+
+	/**
+	 * Deals the hand, posts the blinds and asks the first player to act. From
+	 * here on the hand only advances through {@link #handleAction} and action
+	 * timeouts, no thread waits for it.
+	 */
+	void start() {
+		stateLock.lock();
+		try {
+			// Deal Cards and set Blinds
+			table.getState().newHand();
+			history = new HandRecord(roundId, table.getTableId(), System.currentTimeMillis());
+			history.players(dealerPosition, players);
+			dealCards();
+			for (Player player : players) {
+				table.sendTo(player.getId(), "HOLE_CARDS " + cardCodes(player.getHand()));
+			}
+			blindBets();
+			for (Player player : players) {
+				updateCurrentBet(player.getSinkValue());
+				table.getState().setChips(player.getSeatNumber(), player.getChips());
+			}
+			street = Street.PREFLOP;
+			// Determine the starting player index for pre-flop
+			int currentDealerIndex = findPlayerIndexBySeat(dealerPosition);
+			startStreet((currentDealerIndex + 3) % players.size());
+		} finally {
+			stateLock.unlock();
+		}
 	}
 
-	void playerActions() {
-		// Deal Cards and set Blinds
-		dealCards();
-		blindBets();
-		currentBet = 2;
-		// Determine the starting player index for pre-flop
-		int currentDealerIndex = findPlayerIndexBySeat(dealerPosition);
-		int startPlayerIndex = (currentDealerIndex + 3) % players.size();
-		bettingRound(startPlayerIndex);
-		currentBet = 0;
-		// Check if there is only one player active
-		if (getNumberOfActivePlayers() == 1) {
-			resolveHand();
-			return;
+	private void startStreet(int startPlayerIndex) {
+		needsToAct = new boolean[players.size()];
+		int canAct = 0;
+		for (Player player : players) {
+			if (canAct(player)) {
+				canAct++;
+			}
 		}
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			// A lone player who can still bet only acts if they face a bet
+			needsToAct[i] = canAct(player) && (canAct > 1 || player.getSinkValue() < currentBet);
+		}
+		promptNextPlayer(startPlayerIndex);
+	}
 
-		// Starting from flop, actions start from the player on the left of the dealer
-		startPlayerIndex = (currentDealerIndex + 1) % players.size();
-		for (int i = 0; i < 3; i++) { // Loop for flop, turn, and river
-			bettingRound(startPlayerIndex);
-			currentBet = 0;
-			if (getNumberOfActivePlayers() == 1) {
-				resolveHand();
+	private void promptNextPlayer(int fromIndex) {
+		for (int i = 0; i < players.size(); i++) {
+			int index = (fromIndex + i) % players.size();
+			if (needsToAct[index]) {
+				currentPlayer = players.get(index);
+				int toCall = currentBet - currentPlayer.getSinkValue();
+				long timeAllowed = ACTION_TIMEOUT_MS + currentPlayer.getTimeBank();
+				table.broadcast("PLAYER_TURN " + currentPlayer.getId() + " " + toCall + " " + timeAllowed);
+				Player expected = currentPlayer;
+				turnStartedAt = System.nanoTime();
+				actionTimeout = table.getTimer().schedule(() -> onActionTimeout(expected), timeAllowed,
+						TimeUnit.MILLISECONDS);
 				return;
 			}
 		}
-
-		// Finally, resolve the hand
-		resolveHand();
+		currentPlayer = null;
+		endStreet();
 	}
 
-	private boolean bettingRound(int startPlayerIndex) {
-		int currentBet = 0;
-		while (true) {
-			boolean actionTaken = false;
-			for (int i = 0; i < players.size(); i++) {
-				int currentPlayerIndex = (startPlayerIndex + i) % players.size();
-				Player currentPlayer = players.get(currentPlayerIndex);
+	private void endStreet() {
+		collectBets();
+		currentBet = 0;
+		table.getState().setPot(pot);
+		if (street == Street.RIVER) {
+			finishHand();
+			return;
+		}
+		street = street.next();
+		dealStreet();
+		// Starting from flop, actions start from the player on the left of the dealer
+		startStreet((findPlayerIndexBySeat(dealerPosition) + 1) % players.size());
+	}
+
+	/**
+	 * Applies a player's action. The amount is only used by
+	 * {@link ActionType#RAISE}, as the raise on top of the current bet.
+	 */
+	void handleAction(String playerId, ActionType action, int amount) {
+		stateLock.lock();
+		try {
+			applyAction(playerId, action, amount, 0);
+		} finally {
+			stateLock.unlock();
+		}
+	}
 
-				if (currentPlayer.getFold() || currentPlayer.getAllIn()) {
-					continue;
-				}
+	/**
+	 * Applies up to max queued actions under a single acquisition of the
+	 * game's lock, returns how many were taken from the queue. Actions that
+	 * arrive after the hand finished are dropped with the rest.
+	 */
+	int handleActions(ActionQueue queue, int max) {
+		stateLock.lock();
+		try {
+			return queue.drain(actionSink, max);
+		} finally {
+			stateLock.unlock();
+		}
+	}
 
-				String playerAction = waitForPlayerAction();
-				handleAction(currentPlayer.getId(), playerAction);
+	// Called with the lock held, receivedAt is 0 for actions that were not queued
+	private void applyAction(String playerId, ActionType action, int amount, long receivedAt) {
+		// Find the player with the given ID
+		Player player = getPlayerById(playerId);
+		if (finished || player == null || player.getFold()) {
+			return;
+		}
+		int playerIndex = players.indexOf(player);
 
-				if (playerAction.startsWith("RAISE")) {
-					currentBet = Integer.parseInt(playerAction.substring("RAISE".length()).trim());
-					actionTaken = true;
-				} else if (playerAction.startsWith("ALL_IN")) {
-					currentBet = currentPlayer.getChips();
-					actionTaken = true;
+		if (player != currentPlayer) {
+			// Folding out of turn is allowed, e.g. when a client disconnects
+			if (action == ActionType.FOLD) {
+				player.setFold();
+				needsToAct[playerIndex] = false;
+				history.action(player.getSeatNumber(), action, 0, player.getSinkValue());
+				table.broadcast("PLAYER_ACTION " + playerId + " FOLD");
+				recordLatency(receivedAt);
+				if (getNumberOfActivePlayers() == 1) {
+					finishHand();
 				}
 			}
+			return;
+		}
 
-			if (!actionTaken) {
-				break;
+		// Handle player actions (fold, call, raise, all-in)
+		switch (action) {
+		case FOLD:
+			player.setFold();
+			break;
+		case CALL:
+			player.call(currentBet);
+			break;
+		case RAISE:
+			if (amount <= 0) {
+				return;
+			}
+			// Raise by the amount on top of the current bet, more than the stack is an all-in
+			long raiseTo = (long) currentBet + amount - player.getSinkValue();
+			if (raiseTo >= player.getChips()) {
+				action = ActionType.ALL_IN;
+				raiseTo = player.getChips();
 			}
+			player.bet((int) raiseTo);
+			break;
+		case ALL_IN:
+			player.bet(player.getChips());
+			break;
+		default:
+			return;
 		}
+		actionTimeout.cancel();
+		history.action(player.getSeatNumber(), action, amount, player.getSinkValue());
+		long thinkingMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - turnStartedAt);
+		player.useTimeBank(Math.max(0, thinkingMs - ACTION_TIMEOUT_MS));
+		needsToAct[playerIndex] = false;
+
+		if (player.getSinkValue() > currentBet) {
+			// A raise reopens the action for everyone else still able to bet
+			updateCurrentBet(player.getSinkValue());
+			for (int i = 0; i < players.size(); i++) {
+				needsToAct[i] = i != playerIndex && canAct(players.get(i));
+			}
+		}
+		table.broadcast("PLAYER_ACTION " + playerId + " " + action
+				+ (action == ActionType.RAISE ? " " + amount : ""));
+		recordLatency(receivedAt);
+		table.getState().setChips(player.getSeatNumber(), player.getChips());
 
-		return getNumberOfActivePlayers() > 1;
+		if (getNumberOfActivePlayers() == 1) {
+			finishHand();
+		} else {
+			promptNextPlayer(getNextPlayerIndex(playerIndex));
+		}
 	}
 
-	void handleAction(String playerId, String action) {
-		// Find the player with the given ID
-		Player player = getPlayerById(playerId);
-		if (player == null) {
-			return;
+	private void recordLatency(long receivedAt) {
+		if (receivedAt != 0) {
+			table.getMetrics().actionLatency.record(System.nanoTime() - receivedAt);
 		}
+	}
 
-		synchronized (actionLock) {
-			// Handle player actions (fold, call, raise, all-in)
-			if (action.startsWith("FOLD")) {
-				player.setFold();
-				player.resetHand();
-			} else if (action.startsWith("CALL")) {
-				player.call(currentBet);
-			} else if (action.startsWith("RAISE")) {
-				int raiseAmount = Integer.parseInt(action.substring("RAISE".length()).trim());
-				player.bet(raiseAmount);
-			} else if (action.startsWith("ALL_IN")) {
-				player.bet(player.getChips());
+	// Checks when there is nothing to call, folds otherwise
+	private void onActionTimeout(Player expected) {
+		stateLock.lock();
+		try {
+			if (finished || currentPlayer != expected) {
+				return;
 			}
+			boolean canCheck = currentBet == expected.getSinkValue();
+			handleAction(expected.getId(), canCheck ? ActionType.CALL : ActionType.FOLD, 0);
+		} finally {
+			stateLock.unlock();
+		}
+	}
 
-			// Notify the game loop that the player's action has been processed
-			playerAction = action;
-			actionLock.notifyAll();
+	private void finishHand() {
+		finished = true;
+		currentPlayer = null;
+		if (actionTimeout != null) {
+			actionTimeout.cancel();
 		}
+		collectBets();
+		resolveHand();
+		table.recordHand(history);
+		table.onHandFinished();
 	}
 
-	String waitForPlayerAction() {
-		synchronized (actionLock) {
-			while (playerAction == null) {
-				try {
-					actionLock.wait();
-				} catch (InterruptedException e) {
-					// Handle interruption
-				}
+	private void collectBets() {
+		for (Player player : players) {
+			pot += player.collectBet();
+		}
+	}
+
+	private boolean canAct(Player player) {
+		return !player.getFold() && !player.getAllIn();
+	}
+
+	/**
+	 * Sends a player their hole cards again, e.g. after they reconnected.
+	 */
+	void resendHoleCards(String playerId) {
+		stateLock.lock();
+		try {
+			Player player = getPlayerById(playerId);
+			if (!finished && player != null) {
+				table.sendTo(playerId, "HOLE_CARDS " + cardCodes(player.getHand()));
 			}
-			String action = playerAction;
-			playerAction = null; // Reset for the next player's turn
-			return action;
+		} finally {
+			stateLock.unlock();
 		}
 	}
 
-	private boolean isPlayerActionCompleted() {
-		long distinctBets = players.stream().filter(p -> !p.getFold() && !p.getAllIn()).mapToInt(Player::getSinkValue)
-				.distinct().count();
-		return distinctBets == 1;
+	boolean isFinished() {
+		return finished;
+	}
+
+	private static String cardCodes(List<Card> cards) {
+		StringBuilder codes = new StringBuilder();
+		for (Card card : cards) {
+			if (codes.length() > 0) {
+				codes.append(' ');
+			}
+			codes.append(card.getCode());
+		}
+		return codes.toString();
 	}
 
 	private void updateCurrentBet(int amount) {
@@ -254,10 +435,6 @@ public class PokerGame {
 		return (int) players.stream().filter(p -> !p.getFold()).count();
 	}
 
-	private void startNewHand() {
-		// Start a new hand (deal cards, set blinds, etc.)
-	}
-
 	Player getCurrentPlayer() {
 		return currentPlayer;
 	}
@@ -272,6 +449,7 @@ public class PokerGame {
 	}
 
 	private void resolveHand() {
+		long startedAt = System.nanoTime();
 		// Get the list of players who haven't folded
 		List<Player> activePlayers = new ArrayList<>();
 		for (Player player : players) {
@@ -281,76 +459,37 @@ public class PokerGame {
 		}
 		List<Player> bestPlayers = new ArrayList<>();
 		if (activePlayers.size() > 1) {
-			PokerHandResolver resolver = new PokerHandResolver();
-			HandRank bestHandRank = null;
-			List<List<Card>> winningHands = new ArrayList<>();
-
-			// Evaluate hands and determine the winner(s)
+			// Each hand's strength was kept up to date as the board came, and it
+			// already encodes the kickers, so ties are real split pots
+			int bestStrength = -1;
 			for (Player player : activePlayers) {
-				List<Card> playerCards = new ArrayList<>(player.getHand());
-				playerCards.addAll(communityCards);
-				HandRank playerRank = resolver.getBestRank(playerCards);
-
-				if (bestHandRank == null || playerRank.compareTo(bestHandRank) > 0) {
+				int strength = player.getHandTracker().getStrength();
+				if (strength > bestStrength) {
 					bestPlayers.clear();
-					bestPlayers.add(player);
-					winningHands.clear();
-					winningHands.add(playerCards);
-					bestHandRank = playerRank;
-				} else if (playerRank.compareTo(bestHandRank) == 0) {
-					bestPlayers.add(player);
-					winningHands.add(playerCards);
+					bestStrength = strength;
 				}
-			}
-
-			if (bestPlayers.size() > 1) {
-				// Tierbreakers
-				switch (bestHandRank) {
-				case HIGH_CARD:
-					handleHandsWithMultiples(1, bestPlayers, winningHands);
-					break;
-				case PAIR:
-					handleHandsWithMultiples(2, bestPlayers, winningHands);
-					break;
-				case TWO_PAIR:
-					handleTwoPairAndFullHouse(bestHandRank, bestPlayers, winningHands);
-					break;
-				case THREE_OF_A_KIND:
-					handleHandsWithMultiples(3, bestPlayers, winningHands);
-					break;
-				case STRAIGHT:
-					handleStraight(bestPlayers, winningHands);
-					break;
-				case FLUSH:
-					handleFlush(bestPlayers, winningHands);
-					break;
-				case FULL_HOUSE:
-					handleTwoPairAndFullHouse(bestHandRank, bestPlayers, winningHands);
-					break;
-				case FOUR_OF_A_KIND:
-					handleHandsWithMultiples(4, bestPlayers, winningHands);
-					break;
-				case STRAIGHT_FLUSH:
-					handleStraightFlush(bestPlayers, winningHands);
-					break;
-				case ROYAL_FLUSH:
-					break;
-				default:
-
+				if (strength == bestStrength) {
+					bestPlayers.add(player);
 				}
 			}
-
 		} else {
 			bestPlayers = activePlayers;
 		}
 
 		// TODO: Side Pot need to be done
 		// Announce the winner and transfer the pot
+		boolean showdown = activePlayers.size() > 1;
 		for (Player player : bestPlayers) {
-			server.broadcast("WINNER " + player.getId());
+			table.broadcast("WINNER " + player.getId());
 			player.addChips(pot / bestPlayers.size());
+			history.award(player.getSeatNumber(), pot / bestPlayers.size(),
+					showdown ? player.getHandTracker().getStrength() : 0);
+			table.getState().setChips(player.getSeatNumber(), player.getChips());
 		}
 		pot = 0;
+		table.getState().setPot(pot);
+		table.getMetrics().showdownTime.record(evaluationNanos + System.nanoTime() - startedAt);
+		evaluationNanos = 0;
 
 		// Reset for the next hand
 		for (Player player : players) {
@@ -359,244 +498,4 @@ public class PokerGame {
 		communityCards.clear();
 	}
 
-	private void handleHandsWithMultiples(int numOfMultiples, List<Player> bestPlayers, List<List<Card>> winningHands) {
-		Rank hiCardRank = null;
-		List<Player> stillTiedPlayers = new ArrayList<>();
-		List<List<Card>> stillTiedHands = new ArrayList<>();
-
-		for (List<Card> hand : winningHands) {
-			Rank cardRank = (numOfMultiples == 1) ? highCard(hand) : findHighestRankWithCount(hand, numOfMultiples);
-
-			if (hiCardRank == null || cardRank.compareTo(hiCardRank) > 0) {
-				hiCardRank = cardRank;
-				stillTiedPlayers.clear();
-				stillTiedHands.clear();
-				addPlayerAndHandToLists(bestPlayers, winningHands, hand, stillTiedPlayers, stillTiedHands);
-			} else if (cardRank.equals(hiCardRank)) {
-				addPlayerAndHandToLists(bestPlayers, winningHands, hand, stillTiedPlayers, stillTiedHands);
-			}
-		}
-
-		if (stillTiedPlayers.size() > 1) {
-			// Remove the cards in the arrayList of with the hiCardRank then find the hiCard
-			// of the kicker
-			for (List<Card> hand : stillTiedHands) {
-				final Rank finalCardRank = hiCardRank;
-				hand.removeIf(card -> card.getRank().equals(finalCardRank));
-			}
-
-			// Now find the high card from the remaining cards in each hand
-			findHighKickers(bestPlayers, stillTiedHands, stillTiedPlayers);
-		} else {
-			bestPlayers = stillTiedPlayers;
-		}
-	}
-
-	private void handleStraight(List<Player> bestPlayers, List<List<Card>> winningHands) {
-		List<Player> stillTiedPlayers = new ArrayList<>();
-		Rank highestStraightRank = null;
-
-		for (List<Card> hand : winningHands) {
-			List<Rank> ranks = hand.stream().map(Card::getRank).distinct().sorted(Comparator.reverseOrder())
-					.collect(Collectors.toList());
-			Rank topRankInStraight = findStraight(ranks);
-
-			if (topRankInStraight != null) {
-				if (highestStraightRank == null || topRankInStraight.compareTo(highestStraightRank) > 0) {
-					highestStraightRank = topRankInStraight;
-					stillTiedPlayers.clear();
-					stillTiedPlayers.add(bestPlayers.get(winningHands.indexOf(hand)));
-				} else if (topRankInStraight.equals(highestStraightRank)) {
-					stillTiedPlayers.add(bestPlayers.get(winningHands.indexOf(hand)));
-				}
-			}
-		}
-
-		bestPlayers.clear();
-		bestPlayers.addAll(stillTiedPlayers);
-	}
-
-	private Rank findStraight(List<Rank> ranks) {
-		for (int i = 0; i <= ranks.size() - 5;) {
-			if (ranks.get(i).ordinal() - 1 == ranks.get(i + 1).ordinal()) {
-				if (ranks.get(i + 1).ordinal() - 1 == ranks.get(i + 2).ordinal()
-						&& ranks.get(i + 2).ordinal() - 1 == ranks.get(i + 3).ordinal()
-						&& ranks.get(i + 3).ordinal() - 1 == ranks.get(i + 4).ordinal()) {
-					return ranks.get(i);
-				} else if (i < ranks.size() - 5) {
-					// restart from next index
-					continue;
-				} else {
-					break;
-				}
-			}
-			i++;
-		}
-		if (ranks.containsAll(Arrays.asList(Rank.ACE, Rank.TWO, Rank.THREE, Rank.FOUR, Rank.FIVE))) {
-			return Rank.FIVE;
-		}
-		return null;
-	}
-
-	private void handleFlush(List<Player> bestPlayers, List<List<Card>> winningHands) {
-	    Rank hiCardRank = null;
-	    Player bestPlayer = null;
-
-	    for (List<Card> hand : winningHands) {
-	        Map<Suit, List<Card>> suitToListMap = hand.stream().collect(Collectors.groupingBy(Card::getSuit));
-
-	        Suit flushSuit = suitToListMap.entrySet().stream()
-	                .filter(entry -> entry.getValue().size() >= 5)
-	                .map(Map.Entry::getKey)
-	                .findFirst()
-	                .orElse(null);
-
-	        if (flushSuit != null) {
-	            List<Card> flushCards = suitToListMap.get(flushSuit);
-	            flushCards.sort(Comparator.comparing(Card::getRank).reversed());
-	            Rank cardRank = flushCards.get(0).getRank();
-
-	            if (hiCardRank == null || cardRank.compareTo(hiCardRank) > 0) {
-	                hiCardRank = cardRank;
-	                bestPlayer = bestPlayers.get(winningHands.indexOf(hand));
-	            }
-	        }
-	    }
-
-	    bestPlayers.clear();
-	    if (bestPlayer != null) {
-	        bestPlayers.add(bestPlayer);
-	    }
-	}
-
-	private void handleStraightFlush(List<Player> bestPlayers, List<List<Card>> winningHands) {
-	    List<Player> stillTiedPlayers = new ArrayList<>();
-	    List<List<Card>> stillTiedHands = new ArrayList<>();
-	    Rank hiStraightRank = null;
-
-	    for (List<Card> hand : winningHands) {
-	        Map<Suit, List<Card>> suitToListMap = hand.stream().collect(Collectors.groupingBy(Card::getSuit));
-	        Suit flushSuit = suitToListMap.entrySet().stream()
-	                .filter(entry -> entry.getValue().size() >= 5)
-	                .map(Map.Entry::getKey)
-	                .findFirst()
-	                .orElse(null);
-
-	        if (flushSuit != null) {
-	            List<Card> flushCards = suitToListMap.get(flushSuit);
-	            List<Rank> sortedRanks = flushCards.stream()
-	                    .map(Card::getRank)
-	                    .sorted(Comparator.reverseOrder())
-	                    .collect(Collectors.toList());
-	            Rank straightRank = findStraight(sortedRanks);
-
-	            if (straightRank != null) {
-	                if (hiStraightRank == null || straightRank.compareTo(hiStraightRank) > 0) {
-	                    hiStraightRank = straightRank;
-	                    stillTiedPlayers.clear();
-	                    stillTiedHands.clear();
-	                    addPlayerAndHandToLists(bestPlayers, winningHands, flushCards, stillTiedPlayers, stillTiedHands);
-	                } else if (straightRank.equals(hiStraightRank)) {
-	                    addPlayerAndHandToLists(bestPlayers, winningHands, flushCards, stillTiedPlayers, stillTiedHands);
-	                }
-	            }
-	        }
-	    }
-	}
-
-
-	private void handleTwoPairAndFullHouse(HandRank handRank, List<Player> bestPlayers, List<List<Card>> winningHands) {
-		List<Player> stillTiedPlayers = new ArrayList<>();
-		List<List<Card>> stillTiedHands = new ArrayList<>();
-
-		Rank hiRank1 = null;
-		Rank hiRank2 = null;
-
-		for (List<Card> hand : winningHands) {
-			Rank rank1 = findHighestRankWithCount(hand, handRank == HandRank.TWO_PAIR ? 2 : 3);
-			hand.removeIf(card -> card.getRank().equals(rank1));
-			Rank rank2 = findHighestRankWithCount(hand, 2);
-
-			if (hiRank1 == null || rank1.compareTo(hiRank1) > 0
-					|| (rank1.equals(hiRank1) && rank2.compareTo(hiRank2) > 0)) {
-				hiRank1 = rank1;
-				hiRank2 = rank2;
-				stillTiedPlayers.clear();
-				stillTiedHands.clear();
-				addPlayerAndHandToLists(bestPlayers, winningHands, hand, stillTiedPlayers, stillTiedHands);
-			} else if (rank1.equals(hiRank1) && rank2.equals(hiRank2)) {
-				addPlayerAndHandToLists(bestPlayers, winningHands, hand, stillTiedPlayers, stillTiedHands);
-			}
-		}
-
-		if (stillTiedPlayers.size() > 1 && handRank == HandRank.TWO_PAIR) {
-			for (List<Card> hand : stillTiedHands) {
-				final Rank finalRank1 = hiRank1;
-				final Rank finalRank2 = hiRank2;
-				hand.removeIf(card -> card.getRank().equals(finalRank1) || card.getRank().equals(finalRank2));
-			}
-			findHighKickers(bestPlayers, stillTiedHands, stillTiedPlayers);
-		} else {
-			bestPlayers.clear();
-			bestPlayers.addAll(stillTiedPlayers);
-		}
-	}
-
-	private Rank findHighestRankWithCount(List<Card> hand, int count) {
-		return hand.stream().collect(Collectors.groupingBy(Card::getRank, Collectors.counting())).entrySet().stream()
-				.filter(entry -> entry.getValue() == count).max(Map.Entry.comparingByKey()).get().getKey();
-	}
-
-	private void addPlayerAndHandToLists(List<Player> bestPlayers, List<List<Card>> winningHands, List<Card> hand,
-			List<Player> stillTiedPlayers, List<List<Card>> stillTiedHands) {
-		stillTiedPlayers.add(bestPlayers.get(winningHands.indexOf(hand)));
-		stillTiedHands.add(new ArrayList<>(hand));
-	}
-
-	private void findHighKickers(List<Player> bestPlayers, List<List<Card>> stillTiedHands,
-			List<Player> stillTiedPlayers) {
-		// Make a copy of hands to avoid modifying the original
-		List<List<Card>> copiedHands = stillTiedHands.stream().map(ArrayList::new).collect(Collectors.toList());
-
-		// Identify the ranks common to all hands, sorted in descending order
-		Set<Rank> commonRanks = EnumSet.allOf(Rank.class);
-		for (List<Card> hand : copiedHands) {
-			commonRanks.retainAll(hand.stream().map(Card::getRank).collect(Collectors.toSet()));
-		}
-		List<Rank> sortedCommonRanks = new ArrayList<>(commonRanks);
-		sortedCommonRanks.sort(Comparator.reverseOrder());
-
-		// Sequentially remove the highest common ranks from each hand
-		for (Rank commonRank : sortedCommonRanks) {
-			for (List<Card> hand : copiedHands) {
-				// Loop through the hand and remove the first card with the common rank
-				Iterator<Card> iterator = hand.iterator();
-				while (iterator.hasNext()) {
-					Card card = iterator.next();
-					if (card.getRank().equals(commonRank)) {
-						iterator.remove();
-						break;
-					}
-				}
-			}
-		}
-
-		// Now find the high card from the remaining cards in each hand
-		Rank hiKickerRank = null;
-		for (List<Card> hand : copiedHands) {
-			Rank kickerRank = highCard(hand);
-			if (hiKickerRank == null || kickerRank.compareTo(hiKickerRank) > 0) {
-				hiKickerRank = kickerRank;
-				bestPlayers.clear();
-				bestPlayers.add(stillTiedPlayers.get(copiedHands.indexOf(hand)));
-			} else if (kickerRank.compareTo(hiKickerRank) == 0) {
-				bestPlayers.add(stillTiedPlayers.get(copiedHands.indexOf(hand)));
-			}
-		}
-	}
-
-	public Rank highCard(List<Card> cards) {
-		return cards.stream().max(Comparator.comparing(Card::getRank)).orElse(null).getRank();
-	}
-
 }
\ No newline at end of file
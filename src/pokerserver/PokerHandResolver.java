@@ -1,47 +1,54 @@
 package pokerserver;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class PokerHandResolver {
 
-    public HandRank getBestRank(List<Card> sevenCards) {
-        List<List<Card>> combinations = generateCombinations(sevenCards, 5);
+    // Null when every hand goes straight to the evaluator
+    private final HandStrengthCache cache;
 
-        HandRank bestHandRank = null;
-        List<Card> bestHandCards = null;
+    public PokerHandResolver() {
+        this(null);
+    }
 
-        for (List<Card> combination : combinations) {
-            HandEvaluator evaluator = new HandEvaluator(combination);
-            HandRank currentRank = evaluator.evaluateHand();
+    /**
+     * Creates a resolver that looks hands up in the cache before evaluating
+     * them. Only the {@link CardSet} variants use it.
+     */
+    public PokerHandResolver(HandStrengthCache cache) {
+        this.cache = cache;
+    }
 
-            if (bestHandRank == null || currentRank.compareTo(bestHandRank) > 0) {
-                bestHandRank = currentRank;
-                bestHandCards = combination;
-            }
-        }
+    public HandRank getBestRank(List<Card> sevenCards) {
+        return SevenCardEvaluator.getHandRank(getBestStrength(sevenCards));
+    }
 
-        return bestHandRank;
+    /**
+     * Returns the strength of the best five card hand in the given cards, see
+     * {@link SevenCardEvaluator}. Stronger hands compare greater, equal hands
+     * compare equal.
+     */
+    public int getBestStrength(List<Card> sevenCards) {
+        return SevenCardEvaluator.evaluate(sevenCards);
     }
 
-    private List<List<Card>> generateCombinations(List<Card> cards, int k) {
-        List<List<Card>> combinations = new ArrayList<>();
-        generateCombinations(cards, k, 0, new ArrayList<>(), combinations);
-        return combinations;
+    /**
+     * Evaluates every player's hole cards against one board in a single call,
+     * see {@link SevenCardEvaluator#evaluateAll}. Returns the number of winners,
+     * whose indices are the first entries of winners.
+     */
+    public int resolveShowdown(long board, long[] hands, int[] strengths, int[] winners) {
+        return SevenCardEvaluator.evaluateAll(board, hands, strengths, winners);
     }
 
-    private void generateCombinations(List<Card> cards, int k, int start, List<Card> current, List<List<Card>> combinations) {
-        if (k == 0) {
-            combinations.add(new ArrayList<>(current));
-            return;
-        }
-
-        for (int i = start; i < cards.size(); i++) {
-            current.add(cards.get(i));
-            generateCombinations(cards, k - 1, i + 1, current, combinations);
-            current.remove(current.size() - 1);
-        }
+    public HandRank getBestRank(long cards) {
+        return SevenCardEvaluator.getHandRank(getBestStrength(cards));
     }
 
-	
-}
\ No newline at end of file
+    /**
+     * Same as {@link #getBestStrength(List)} for cards packed in a {@link CardSet} mask.
+     */
+    public int getBestStrength(long cards) {
+        return cache == null ? SevenCardEvaluator.evaluate(cards) : cache.getStrength(cards);
+    }
+}
@@ -1,167 +1,270 @@
 package pokerserver;
 
-import javax.swing.*;
-import java.io.*;
-import java.net.*;
-import java.util.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class PokerServer extends JFrame implements Runnable {
+import javax.management.JMException;
 
-	private static final int WIDTH = 400;
-	private static final int HEIGHT = 300;
-	static final int MAX_PLAYERS = 6;
+/**
+ * The poker server: transports, tables and the timer they share, with no user
+ * interface. {@link #main} runs it headless as configured by
+ * {@link ServerConfig}; {@link PokerServerWindow} puts a Swing window in front
+ * of it. Everything is logged through an asynchronous {@link ServerLog}.
+ */
+public class PokerServer implements Runnable {
 
-	List<PrintWriter> clients = new ArrayList<>();
-	JTextArea serverTextArea;
-	PlayerSeat[] seats;
-	private int serverPort;
-	Set<String> uniqueIDs = new HashSet<>();
-	CountdownTimer countdownTimer;
+	/**
+	 * How client sockets are served: a thread per client, or one selector thread
+	 * for all of them.
+	 */
+	enum Transport {
+		BLOCKING, NIO
+	}
 
-	private boolean roundInProgress = false;
-	private PokerGame currentGame;
+	private final ServerLog serverLog;
+	private volatile int serverPort;
+	// Player IDs in use and their tables
+	private final SessionRegistry sessions = new SessionRegistry();
+	private final TableManager tableManager;
+	private final Transport transport;
+	private final ThreadMode threadMode;
+	private SlowConsumerPolicy slowConsumerPolicy;
+	private NioServer nioServer;
+	private volatile ServerSocket serverSocket;
+	// Shared by all tables for countdowns, action clocks and disconnect grace periods
+	private final TimerWheel timer;
+	// Runs the spectator fan-out and the expired timeouts of every table, off the game and timer threads
+	private final ExecutorService fanoutExecutor;
+	private long spectatorDelayMs;
+	private final ServerMetrics metrics = new ServerMetrics(this);
+	private final int metricsPort;
+	private MetricsEndpoint metricsEndpoint;
+	private final String journalDir;
+	private final long journalSegmentSize;
+	private volatile HandJournal journal;
 
 	public PokerServer() {
-		super("Poker Server");
-		setSize(WIDTH, HEIGHT);
-		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		createMenu();
-		serverTextArea = new JTextArea();
-		add(new JScrollPane(serverTextArea));
-		setVisible(true);
-		seats = new PlayerSeat[MAX_PLAYERS];
-		clients = new ArrayList<>();
-		uniqueIDs = new HashSet<>();
-		setRoundInProgress(false);
-	}
-
-	private void createMenu() {
-		JMenuBar menuBar = new JMenuBar();
-		JMenu menu = new JMenu("Server Options");
-		JMenuItem startItem = new JMenuItem("Start server");
-		startItem.addActionListener((e) -> startServer());
-		menu.add(startItem);
-		JMenuItem stopItem = new JMenuItem("Stop server");
-		stopItem.addActionListener((e) -> stopServer());
-		menu.add(stopItem);
-		JMenuItem clearItem = new JMenuItem("Clear server output");
-		clearItem.addActionListener((e) -> serverTextArea.setText(""));
-		menu.add(clearItem);
-		JMenuItem exitItem = new JMenuItem("Exit");
-		exitItem.addActionListener((e) -> System.exit(0));
-		menu.add(exitItem);
-		menuBar.add(menu);
-		setJMenuBar(menuBar);
-	}
-
-	private void startServer() {
-		String portNumber = JOptionPane.showInputDialog(this, "Enter server port number:");
-		serverPort = Integer.parseInt(portNumber);
-		Thread serverThread = new Thread(this);
+		this(new ServerConfig(), new ServerLog());
+	}
+
+	PokerServer(ServerConfig config, ServerLog serverLog) {
+		this.serverLog = serverLog;
+		this.transport = config.transport;
+		this.threadMode = config.threadMode;
+		this.slowConsumerPolicy = config.slowConsumerPolicy;
+		this.spectatorDelayMs = config.spectatorDelayMs;
+		this.metricsPort = config.metricsPort;
+		this.journalDir = config.journalDir;
+		this.journalSegmentSize = (long) config.journalSegmentMb << 20;
+		tableManager = new TableManager(this, config.maxTables);
+		fanoutExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+				threadMode.factory("fanout"));
+		timer = new TimerWheel("table-timer", fanoutExecutor, serverLog);
+	}
+
+	/**
+	 * Starts accepting clients on the port, on a thread of its own.
+	 */
+	void start(int port) {
+		serverPort = port;
+		Thread serverThread;
+		if (transport == Transport.NIO) {
+			nioServer = new NioServer(this, serverPort);
+			serverThread = new Thread(nioServer, "nio-selector");
+		} else {
+			serverThread = new Thread(this, "accept");
+		}
 		serverThread.start();
-		serverTextArea.append("Poker server started on port " + serverPort + "\n");
+		log("Poker server started on port " + serverPort + " (" + transport + ", " + threadMode
+				+ (threadMode == ThreadMode.VIRTUAL && !threadMode.isVirtualAvailable() ? " unavailable, using platform" : "")
+				+ " threads)");
+		startMetrics();
+		openJournal();
+	}
+
+	private void openJournal() {
+		if (journalDir != null && journal == null) {
+			try {
+				journal = new HandJournal(Paths.get(journalDir), journalSegmentSize, HandJournal.DEFAULT_CAPACITY,
+						serverLog);
+				log("Hand journal in " + journal.getDirectory().toAbsolutePath());
+			} catch (IOException | IllegalArgumentException e) {
+				log("Hand journal not opened: " + e);
+			}
+		}
+	}
+
+	// Metrics are collected from the start, this only exposes them
+	private void startMetrics() {
+		try {
+			metrics.register();
+		} catch (JMException e) {
+			log("Metrics not registered with JMX: " + e);
+		}
+		if (metricsPort > 0 && metricsEndpoint == null) {
+			try {
+				metricsEndpoint = new MetricsEndpoint(metrics, metricsPort);
+				metricsEndpoint.start();
+				log("Metrics on http://localhost:" + metricsEndpoint.getPort() + MetricsEndpoint.PATH);
+			} catch (IOException e) {
+				log("Metrics endpoint not started: " + e);
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting clients. Clients already connected keep playing.
+	 */
+	void stop() {
+		if (nioServer != null) {
+			nioServer.stop();
+			nioServer = null;
+		}
+		ServerSocket socket = serverSocket;
+		if (socket != null) {
+			serverSocket = null;
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Closing anyway
+			}
+		}
+		log("Poker server stopped");
 	}
 
-	private void stopServer() {
-		serverTextArea.append("Poker server stopped\n");
+	/**
+	 * Releases what outlives {@link #stop}: the metrics endpoint, and the hand
+	 * journal once the hands it was given are written.
+	 */
+	void shutdown() {
+		if (metricsEndpoint != null) {
+			metricsEndpoint.stop();
+			metricsEndpoint = null;
+		}
+		if (journal != null) {
+			journal.close();
+			journal = null;
+		}
 	}
 
 	@Override
 	public void run() {
-		try {
-			ServerSocket serverSocket = new ServerSocket(serverPort);
-			setTitle("Poker Server: Port " + serverPort);
+		try (ServerSocket socket = new ServerSocket(serverPort)) {
+			serverSocket = socket;
 			while (true) {
-				Socket clientSocket = serverSocket.accept();
+				Socket clientSocket = socket.accept();
 				ClientHandler clientHandler = new ClientHandler(this, clientSocket);
-				Thread clientThread = new Thread(clientHandler);
-				clientThread.start();
+				threadMode.newThread(clientHandler, "client-" + clientSocket.getPort()).start();
 			}
 		} catch (IOException e) {
-			e.printStackTrace();
+			// Closing the socket in stop() ends the loop, anything else is worth a line
+			if (serverSocket != null) {
+				log("Accept failed: " + e);
+			}
 		}
 	}
 
-	String getSeatInfo() {
-		StringBuilder seatInfo = new StringBuilder();
-		synchronized (seats) {
-			for (int i = 0; i < MAX_PLAYERS; i++) {
-				if (seats[i] != null && seats[i].isOccupied) {
-					seatInfo.append(i).append(",").append(seats[i].playerId).append(";");
-				}
-			}
-		}
-		return seatInfo.toString();
+	void log(String message) {
+		serverLog.log(message);
 	}
 
-	void broadcast(String message) {
-		for (PrintWriter client : clients) {
-			client.println(message);
-		}
+	void log(String message, Throwable error) {
+		serverLog.log(message, error);
+	}
+
+	int getPort() {
+		return serverPort;
 	}
 
-	public void startNewRound() {
-//		// Stop the countdown timer
-//		if (countdownTimer != null) {
-//			countdownTimer.stopTimer();
-//			countdownTimer = null;
-//		}
+	ServerLog getLog() {
+		return serverLog;
+	}
 
-		// Start the game logic
-	    setRoundInProgress(true);
+	ServerMetrics getMetrics() {
+		return metrics;
+	}
 
-	    // Initialize the PokerGame instance
-	    currentGame = new PokerGame(this);
+	/**
+	 * Returns the hand journal, null if the server keeps none.
+	 */
+	HandJournal getJournal() {
+		return journal;
+	}
 
-	    // Add connected players to the game
-	    synchronized (seats) {
-	        for (PlayerSeat seat : seats) {
-	            if (seat != null && seat.isOccupied) {
-	                Player player = new Player(seat.playerId, seat.seatNumber, 200);
-	                currentGame.addPlayer(player);
-	            }
-	        }
-	    }
+	TimerWheel getTimer() {
+		return timer;
+	}
 
-	    broadcast("GAME_START");
-	    serverTextArea.append("Game Started\n");
+	SessionRegistry getSessions() {
+		return sessions;
+	}
 
-	    // Sort players by their seat number
-	    currentGame.sortPlayersBySeat();
-	    // Initialize the seats in game
-//	    currentGame.initOccupiedSeats();
+	SlowConsumerPolicy getSlowConsumerPolicy() {
+		return slowConsumerPolicy;
+	}
 
-	    // Initialize the dealer position after all players are added
-	    if (currentGame.getRoundId() == 0) {
-	        currentGame.setRandomDealer();
-	        serverTextArea.append("Dealer is " + currentGame.getDealerPosition() + "\n");
-	    } else {
-	        currentGame.setNextDealer();
-	        serverTextArea.append("Dealer is " + currentGame.getDealerPosition() + "\n");
-	    }
+	void setSlowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+		this.slowConsumerPolicy = slowConsumerPolicy;
+	}
 
-	    // Game Actions
-	    synchronized(currentGame) {
-		    currentGame.playerActions();
-	    }
-	    
+	ExecutorService getFanoutExecutor() {
+		return fanoutExecutor;
+	}
 
-	   
+	long getSpectatorDelayMs() {
+		return spectatorDelayMs;
 	}
 
-	public boolean isRoundInProgress() {
-		return roundInProgress;
+	/**
+	 * Delays what spectators see of tables opened from now on, e.g. to keep
+	 * observers from relaying a hand to a seated player.
+	 */
+	void setSpectatorDelayMs(long spectatorDelayMs) {
+		this.spectatorDelayMs = spectatorDelayMs;
 	}
 
-	public void setRoundInProgress(boolean roundInProgress) {
-		this.roundInProgress = roundInProgress;
+	ThreadMode getThreadMode() {
+		return threadMode;
 	}
 
-	public static void main(String[] args) {
-		PokerServer pokerServer = new PokerServer();
+	TableManager getTableManager() {
+		return tableManager;
 	}
 
-	public PokerGame getCurrentGame() {
-		return currentGame;
+	/**
+	 * Runs the server headless, see {@link ServerConfig} for the arguments.
+	 */
+	public static void main(String[] args) throws IOException {
+		ServerConfig config;
+		try {
+			config = ServerConfig.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: PokerServer [file.properties] [key=value ...]");
+			System.exit(1);
+			return;
+		}
+		Writer out = config.logFile == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+				: Files.newBufferedWriter(Paths.get(config.logFile), StandardCharsets.UTF_8,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		ServerLog serverLog = new ServerLog();
+		serverLog.addSink(ServerLog.writerSink(new BufferedWriter(out)));
+		PokerServer server = new PokerServer(config, serverLog);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop();
+			server.shutdown();
+			serverLog.close();
+		}, "shutdown"));
+		server.start(config.port);
 	}
 }
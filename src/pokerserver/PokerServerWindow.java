@@ -0,0 +1,98 @@
+package pokerserver;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Swing front end of a {@link PokerServer} for running it on a desktop: asks
+ * for the port and shows the latest lines of the server log. The log reaches
+ * the window in batches from the {@link ServerLog} writer, and only the last
+ * {@link #MAX_LOG_LINES} lines are kept.
+ */
+public class PokerServerWindow extends JFrame {
+
+	private static final int WIDTH = 400;
+	private static final int HEIGHT = 300;
+	static final int MAX_LOG_LINES = 1000;
+
+	private final PokerServer server;
+	private final JTextArea serverTextArea = new JTextArea();
+
+	PokerServerWindow(PokerServer server) {
+		super("Poker Server");
+		this.server = server;
+		setSize(WIDTH, HEIGHT);
+		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		createMenu();
+		serverTextArea.setEditable(false);
+		add(new JScrollPane(serverTextArea));
+		server.getLog().addSink(lines -> {
+			// The writer reuses its batch once this returns
+			List<String> copy = new ArrayList<>(lines);
+			SwingUtilities.invokeLater(() -> append(copy));
+		});
+	}
+
+	private void createMenu() {
+		JMenuBar menuBar = new JMenuBar();
+		JMenu menu = new JMenu("Server Options");
+		JMenuItem startItem = new JMenuItem("Start server");
+		startItem.addActionListener((e) -> startServer());
+		menu.add(startItem);
+		JMenuItem stopItem = new JMenuItem("Stop server");
+		stopItem.addActionListener((e) -> server.stop());
+		menu.add(stopItem);
+		JMenuItem clearItem = new JMenuItem("Clear server output");
+		clearItem.addActionListener((e) -> serverTextArea.setText(""));
+		menu.add(clearItem);
+		JMenuItem exitItem = new JMenuItem("Exit");
+		exitItem.addActionListener((e) -> System.exit(0));
+		menu.add(exitItem);
+		menuBar.add(menu);
+		setJMenuBar(menuBar);
+	}
+
+	private void startServer() {
+		String portNumber = JOptionPane.showInputDialog(this, "Enter server port number:");
+		if (portNumber == null) {
+			return;
+		}
+		int serverPort = Integer.parseInt(portNumber.trim());
+		server.start(serverPort);
+		setTitle("Poker Server: Port " + serverPort);
+	}
+
+	// Runs on the event dispatch thread
+	private void append(List<String> lines) {
+		StringBuilder text = new StringBuilder();
+		for (String line : lines) {
+			text.append(line).append('\n');
+		}
+		serverTextArea.append(text.toString());
+		int excess = serverTextArea.getLineCount() - 1 - MAX_LOG_LINES;
+		if (excess > 0) {
+			try {
+				serverTextArea.replaceRange("", 0, serverTextArea.getLineEndOffset(excess - 1));
+			} catch (BadLocationException e) {
+				serverTextArea.setText("");
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		// Optional arguments pick the transport and thread mode, e.g. "blocking virtual"
+		ServerConfig config = new ServerConfig();
+		if (args.length > 0) {
+			config.transport = PokerServer.Transport.valueOf(args[0].toUpperCase());
+		}
+		if (args.length > 1) {
+			config.threadMode = ThreadMode.valueOf(args[1].toUpperCase());
+		}
+		PokerServer server = new PokerServer(config, new ServerLog());
+		// Lets the hand journal write out what it was given when the window exits
+		Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown, "shutdown"));
+		new PokerServerWindow(server).setVisible(true);
+	}
+}
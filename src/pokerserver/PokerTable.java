@@ -0,0 +1,412 @@
+package pokerserver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * One table hosted by a {@link PokerServer}: its seats, the clients that receive
+ * its broadcasts, its deck and the hand being played.
+ *
+ * A table owns no thread. Hands advance on whichever thread delivers an action
+ * or fires a timeout on the server's shared scheduler, so an idle table costs
+ * nothing but memory.
+ */
+public class PokerTable {
+	static final int MAX_PLAYERS = 6;
+	static final long NEXT_HAND_DELAY_MS = 3000;
+	static final long ROUND_START_COUNTDOWN_MS = 10000;
+	// Added to a running countdown for every player who sits down
+	static final long JOIN_EXTENSION_MS = 2000;
+	// How long a dropped player keeps their seat to reconnect
+	static final long DISCONNECT_GRACE_MS = 20000;
+	// Actions applied per acquisition of the game's lock
+	static final int ACTION_BATCH = 64;
+
+	private final PokerServer server;
+	private final int tableId;
+	// The player ID in each seat, null if free; claimed and released with CAS
+	private final AtomicReferenceArray<String> seats = new AtomicReferenceArray<>(MAX_PLAYERS);
+	// Connections by player ID, iterated by broadcasts without holding a lock
+	final Map<String, ClientConnection> clients = new ConcurrentHashMap<>();
+	CountdownTimer countdownTimer;
+	// Players whose connection dropped, until they reconnect or their grace period ends
+	private final Map<String, TimerWheel.Timeout> pendingLeaves = new ConcurrentHashMap<>();
+	// What clients mirror of this table, kept in sync with sequence numbered deltas
+	private final TableState state = new TableState(this);
+	// Actions from the network threads, applied in batches by one thread at a time
+	private final ActionQueue actions = new ActionQueue(ActionQueue.DEFAULT_CAPACITY);
+	// Only written by the thread draining the actions
+	private volatile long actionsHandled;
+	// Actions offered but not yet accounted for by the thread draining the queue
+	private final AtomicInteger pendingActions = new AtomicInteger();
+	// Created when the first spectator arrives
+	private volatile SpectatorHub spectators;
+
+	// Reused by every hand at this table
+	private final Deck deck = new Deck(RandomSource.secure());
+	private volatile boolean roundInProgress = false;
+	private volatile PokerGame currentGame;
+	private int handsPlayed = 0;
+	private int dealerPosition = -1;
+
+	PokerTable(PokerServer server, int tableId) {
+		this.server = server;
+		this.tableId = tableId;
+	}
+
+	int getTableId() {
+		return tableId;
+	}
+
+	/**
+	 * Assigns a random free seat to the player, returns the seat number or -1 if
+	 * the table is full.
+	 */
+	int claimSeat(String playerId) {
+		int[] availableSeats = new int[MAX_PLAYERS];
+		while (true) {
+			int available = 0;
+			for (int i = 0; i < MAX_PLAYERS; i++) {
+				if (seats.get(i) == null) {
+					availableSeats[available++] = i;
+				}
+			}
+			if (available == 0) {
+				return -1;
+			}
+			int assignedSeat = availableSeats[ThreadLocalRandom.current().nextInt(available)];
+			if (seats.compareAndSet(assignedSeat, null, playerId)) {
+				return assignedSeat;
+			}
+			// Someone else took it first, look again
+		}
+	}
+
+	/**
+	 * Returns the seat number held by the player, or -1 if they are not seated here.
+	 */
+	int findSeat(String playerId) {
+		for (int i = 0; i < MAX_PLAYERS; i++) {
+			if (playerId.equals(seats.get(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Frees the seat if the player still holds it.
+	 */
+	void releaseSeat(int seatNumber, String playerId) {
+		seats.compareAndSet(seatNumber, playerId, null);
+	}
+
+	int getOccupiedSeatCount() {
+		int count = 0;
+		for (int i = 0; i < MAX_PLAYERS; i++) {
+			if (seats.get(i) != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	void addClient(String playerId, ClientConnection client) {
+		clients.put(playerId, client);
+	}
+
+	void removeClient(String playerId) {
+		clients.remove(playerId);
+	}
+
+	void broadcast(String message) {
+		// Encoded at most once per protocol, whatever the number of clients
+		OutboundMessage outbound = new OutboundMessage(message);
+		for (ClientConnection client : clients.values()) {
+			client.send(outbound);
+		}
+		SpectatorHub hub = spectators;
+		if (hub != null) {
+			hub.publish(outbound);
+		}
+	}
+
+	/**
+	 * Adds a read-only spectator, who gets a snapshot and then every broadcast,
+	 * delayed by the server's spectator delay.
+	 */
+	void watch(ClientConnection connection) {
+		SpectatorHub hub = spectators;
+		if (hub == null) {
+			synchronized (this) {
+				hub = spectators;
+				if (hub == null) {
+					hub = new SpectatorHub(getFanoutExecutor(), getTimer(), getSpectatorDelayMs());
+					spectators = hub;
+				}
+			}
+		}
+		state.watch(hub, connection);
+	}
+
+	/**
+	 * Sends a spectator a new snapshot, delayed like everything it sees.
+	 */
+	void resyncSpectator(ClientConnection connection) {
+		SpectatorHub hub = spectators;
+		if (hub != null) {
+			state.resync(hub, connection);
+		}
+	}
+
+	void unwatch(ClientConnection connection) {
+		SpectatorHub hub = spectators;
+		if (hub != null) {
+			hub.detach(connection);
+		}
+	}
+
+	int getSpectatorCount() {
+		SpectatorHub hub = spectators;
+		return hub == null ? 0 : hub.getSpectatorCount();
+	}
+
+	/**
+	 * Sends a message to one player only, e.g. their hole cards.
+	 */
+	void sendTo(String playerId, String message) {
+		ClientConnection client = clients.get(playerId);
+		if (client != null) {
+			client.send(message);
+		}
+	}
+
+	TableState getState() {
+		return state;
+	}
+
+	/**
+	 * Queues a finished hand for the server's journal, if it keeps one.
+	 */
+	void recordHand(HandRecord hand) {
+		HandJournal journal = server.getJournal();
+		if (journal != null) {
+			journal.append(hand);
+		}
+	}
+
+	ServerMetrics getMetrics() {
+		return server.getMetrics();
+	}
+
+	/**
+	 * Actions taken from this table's queue by running hands since it opened.
+	 */
+	long getActionsHandled() {
+		return actionsHandled;
+	}
+
+	TimerWheel getTimer() {
+		return server.getTimer();
+	}
+
+	Executor getFanoutExecutor() {
+		return server.getFanoutExecutor();
+	}
+
+	long getSpectatorDelayMs() {
+		return server.getSpectatorDelayMs();
+	}
+
+	void log(String message) {
+		server.log("[Table " + tableId + "] " + message);
+	}
+
+	/**
+	 * Starts the countdown to the first hand once two players are seated, and
+	 * extends it for every player joining while it runs.
+	 */
+	synchronized void onPlayerJoined() {
+		if (roundInProgress) {
+			return;
+		}
+		if (countdownTimer != null && countdownTimer.isRunning()) {
+			countdownTimer.addTime(JOIN_EXTENSION_MS);
+		} else if (getOccupiedSeatCount() >= 2) {
+			countdownTimer = new CountdownTimer(this, getTimer(), ROUND_START_COUNTDOWN_MS, this::getOccupiedSeatCount);
+			countdownTimer.start();
+		}
+	}
+
+	/**
+	 * Starts a hand if none is in progress and enough players are seated.
+	 */
+	void startRoundIfReady() {
+		synchronized (this) {
+			if (roundInProgress || getOccupiedSeatCount() < 2) {
+				return;
+			}
+			roundInProgress = true;
+		}
+		startNewRound();
+	}
+
+	private void startNewRound() {
+		// Initialize the PokerGame instance
+		currentGame = new PokerGame(this, deck);
+
+		// Add connected players to the game
+		for (int i = 0; i < MAX_PLAYERS; i++) {
+			String playerId = seats.get(i);
+			if (playerId != null) {
+				currentGame.addPlayer(new Player(playerId, i, 200));
+			}
+		}
+
+		broadcast("GAME_START");
+		log("Game Started");
+
+		// Sort players by their seat number
+		currentGame.sortPlayersBySeat();
+
+		// Initialize the dealer position after all players are added
+		if (handsPlayed == 0) {
+			currentGame.setRandomDealer();
+		} else {
+			currentGame.setNextDealer(dealerPosition);
+		}
+		dealerPosition = currentGame.getDealerPosition();
+		handsPlayed++;
+		getMetrics().handsStarted.increment();
+		log("Dealer is " + dealerPosition);
+
+		// Deal and ask the first player to act, the rest is driven by events
+		currentGame.start();
+	}
+
+	/**
+	 * Called by the game once its pot has been awarded. The next hand starts
+	 * after a short pause if enough players are still seated.
+	 */
+	void onHandFinished() {
+		setRoundInProgress(false);
+		getTimer().schedule(this::startRoundIfReady, NEXT_HAND_DELAY_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Queues a player's action without locking. The thread that finds the
+	 * queue idle drains it, so a burst of actions from several connections is
+	 * applied in batches by one thread instead of each handing the game's lock
+	 * to the next.
+	 */
+	void onAction(String playerId, ActionType action, int amount) {
+		if (!actions.offer(playerId, action, amount)) {
+			getMetrics().actionsDropped.increment();
+			log("Action queue full, dropped " + action + " from " + playerId);
+			return;
+		}
+		getMetrics().actionsReceived.increment();
+		if (pendingActions.getAndIncrement() == 0) {
+			drainActions();
+		}
+	}
+
+	private void drainActions() {
+		int missed = 1;
+		do {
+			PokerGame game = currentGame;
+			if (game == null) {
+				actions.clear();
+			} else {
+				int handled;
+				do {
+					// Let timeouts take the game's lock between batches
+					handled = game.handleActions(actions, ACTION_BATCH);
+					actionsHandled += handled;
+				} while (handled == ACTION_BATCH);
+			}
+			missed = pendingActions.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	/**
+	 * Removes a player for good: folds them if a hand is running, frees their
+	 * seat and their ID.
+	 */
+	void leave(String playerId, int seatNumber) {
+		TimerWheel.Timeout pending = pendingLeaves.remove(playerId);
+		if (pending != null) {
+			pending.cancel();
+		}
+		onAction(playerId, ActionType.FOLD, 0);
+		// Cleared before the seat is freed, so it cannot hide the SEAT delta of whoever takes it next
+		state.clearSeat(seatNumber, playerId);
+		releaseSeat(seatNumber, playerId);
+		removeClient(playerId);
+		server.getSessions().release(playerId);
+		log("Client " + playerId + " left");
+		broadcast("PLAYER_DISCONNECTED " + playerId);
+	}
+
+	/**
+	 * Keeps a dropped player's seat for {@link #DISCONNECT_GRACE_MS}. Their action
+	 * clock keeps running, so a hand in progress does not wait for them.
+	 */
+	void scheduleLeave(String playerId, int seatNumber) {
+		removeClient(playerId);
+		log("Client " + playerId + " dropped, holding seat " + seatNumber);
+		pendingLeaves.put(playerId, getTimer().schedule(() -> {
+			if (pendingLeaves.remove(playerId) != null) {
+				leave(playerId, seatNumber);
+			}
+		}, DISCONNECT_GRACE_MS, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Reattaches a player who reconnected during their grace period and sends
+	 * them their seat with a new token, a snapshot and their hole cards.
+	 * Returns false if they were not waiting to leave this table, or the token
+	 * is not the one they were given with their seat.
+	 */
+	boolean reconnect(String playerId, String token, ClientConnection connection) {
+		SessionRegistry sessions = server.getSessions();
+		if (!sessions.checkToken(playerId, token)) {
+			return false;
+		}
+		TimerWheel.Timeout pending = pendingLeaves.remove(playerId);
+		if (pending == null || !pending.cancel()) {
+			return false;
+		}
+		connection.send("ASSIGNED " + findSeat(playerId) + " " + sessions.issueToken(playerId));
+		state.attach(playerId, connection);
+		PokerGame game = currentGame;
+		if (game != null) {
+			game.resendHoleCards(playerId);
+		}
+		log("Client " + playerId + " reconnected");
+		return true;
+	}
+
+	public boolean isRoundInProgress() {
+		return roundInProgress;
+	}
+
+	public void setRoundInProgress(boolean roundInProgress) {
+		this.roundInProgress = roundInProgress;
+	}
+
+	public PokerGame getCurrentGame() {
+		return currentGame;
+	}
+
+	void shutdown() {
+		if (countdownTimer != null) {
+			countdownTimer.stopTimer();
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package pokerserver;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Source of uniform random numbers for shuffling a {@link Deck}.
+ */
+public interface RandomSource {
+
+	/**
+	 * Returns a uniformly distributed value between 0 (inclusive) and bound
+	 * (exclusive).
+	 */
+	int nextInt(int bound);
+
+	/**
+	 * Fast generator backed by {@link ThreadLocalRandom}, so decks on different
+	 * threads never contend on a shared seed.
+	 */
+	static RandomSource threadLocal() {
+		return bound -> ThreadLocalRandom.current().nextInt(bound);
+	}
+
+	/**
+	 * Fast generator for one thread, e.g. a simulation task. Use
+	 * {@link SplittableRandom#split()} to hand independent streams to other tasks.
+	 */
+	static RandomSource splittable(SplittableRandom random) {
+		return random::nextInt;
+	}
+
+	/**
+	 * Cryptographically strong generator for tables played for real money.
+	 */
+	static RandomSource secure() {
+		SecureRandom random = new SecureRandom();
+		return random::nextInt;
+	}
+}
@@ -0,0 +1,118 @@
+package pokerserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Settings of a headless {@link PokerServer}, read from an optional
+ * properties file and then from key=value arguments, which win. Every key is
+ * optional:
+ *
+ * <pre>
+ * port=5000
+ * transport=nio                  (or blocking)
+ * threadMode=platform            (or virtual)
+ * slowConsumerPolicy=disconnect  (drop, disconnect or resync)
+ * spectatorDelayMs=0
+ * maxTables=500
+ * logFile=                       (empty for standard output)
+ * metricsPort=0                  (Prometheus text on localhost, 0 for none)
+ * journalDir=                    (directory of the hand journal, empty for none)
+ * journalSegmentMb=64
+ * </pre>
+ */
+final class ServerConfig {
+	static final int DEFAULT_PORT = 5000;
+
+	int port = DEFAULT_PORT;
+	PokerServer.Transport transport = PokerServer.Transport.NIO;
+	ThreadMode threadMode = ThreadMode.PLATFORM;
+	SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DISCONNECT;
+	long spectatorDelayMs = 0;
+	int maxTables = TableManager.DEFAULT_MAX_TABLES;
+	// Null for standard output
+	String logFile;
+	// 0 for no metrics endpoint; JMX is always on
+	int metricsPort = 0;
+	// Null for no hand journal
+	String journalDir;
+	int journalSegmentMb = (int) (HandJournal.DEFAULT_SEGMENT_SIZE >> 20);
+
+	/**
+	 * Parses "[file.properties] [key=value ...]".
+	 *
+	 * @throws IllegalArgumentException on an unknown key or a bad value
+	 */
+	static ServerConfig parse(String[] args) throws IOException {
+		Properties properties = new Properties();
+		int first = 0;
+		if (args.length > 0 && !args[0].contains("=")) {
+			try (InputStream in = Files.newInputStream(Paths.get(args[0]))) {
+				properties.load(in);
+			}
+			first = 1;
+		}
+		for (int i = first; i < args.length; i++) {
+			int equals = args[i].indexOf('=');
+			if (equals <= 0) {
+				throw new IllegalArgumentException("Expected key=value: " + args[i]);
+			}
+			properties.setProperty(args[i].substring(0, equals), args[i].substring(equals + 1));
+		}
+
+		ServerConfig config = new ServerConfig();
+		for (String key : properties.stringPropertyNames()) {
+			config.set(key, properties.getProperty(key).trim());
+		}
+		return config;
+	}
+
+	private void set(String key, String value) {
+		boolean known = true;
+		try {
+			switch (key) {
+			case "port":
+				port = Integer.parseInt(value);
+				break;
+			case "transport":
+				transport = PokerServer.Transport.valueOf(value.toUpperCase(Locale.ROOT));
+				break;
+			case "threadMode":
+				threadMode = ThreadMode.valueOf(value.toUpperCase(Locale.ROOT));
+				break;
+			case "slowConsumerPolicy":
+				slowConsumerPolicy = SlowConsumerPolicy.valueOf(value.toUpperCase(Locale.ROOT));
+				break;
+			case "spectatorDelayMs":
+				spectatorDelayMs = Long.parseLong(value);
+				break;
+			case "maxTables":
+				maxTables = Integer.parseInt(value);
+				break;
+			case "logFile":
+				logFile = value.isEmpty() ? null : value;
+				break;
+			case "metricsPort":
+				metricsPort = Integer.parseInt(value);
+				break;
+			case "journalDir":
+				journalDir = value.isEmpty() ? null : value;
+				break;
+			case "journalSegmentMb":
+				journalSegmentMb = Integer.parseInt(value);
+				break;
+			default:
+				known = false;
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Bad value for " + key + ": " + value, e);
+		}
+		if (!known) {
+			throw new IllegalArgumentException("Unknown setting: " + key);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package pokerserver;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous server log. Any thread can log without taking a lock: lines go
+ * into a lock-free queue, and a single writer thread stamps them with their
+ * time and hands them to the sinks in batches, flushing once per batch.
+ *
+ * The queue is bounded. When it is full, lines are dropped and counted rather
+ * than slowing down the game or network threads, and the writer reports how
+ * many it lost.
+ */
+final class ServerLog {
+	static final int DEFAULT_CAPACITY = 65_536;
+	static final int MAX_BATCH = 1024;
+	private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+			.withZone(ZoneId.systemDefault());
+
+	/**
+	 * Receives the formatted lines of one batch, on the writer thread.
+	 */
+	interface Sink {
+		void write(List<String> lines) throws IOException;
+	}
+
+	private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final AtomicInteger dropped = new AtomicInteger();
+	private final int capacity;
+	private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+	private final Thread writer;
+	private volatile boolean running = true;
+
+	ServerLog() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity most lines waiting for the writer before new ones are dropped
+	 */
+	ServerLog(int capacity) {
+		this.capacity = capacity;
+		this.writer = new Thread(this::run, "server-log");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * A sink writing each line to the writer, flushed once per batch.
+	 */
+	static Sink writerSink(Writer out) {
+		return lines -> {
+			for (String line : lines) {
+				out.write(line);
+				out.write(System.lineSeparator());
+			}
+			out.flush();
+		};
+	}
+
+	void addSink(Sink sink) {
+		sinks.add(sink);
+	}
+
+	void removeSink(Sink sink) {
+		sinks.remove(sink);
+	}
+
+	void log(String message) {
+		log(message, null);
+	}
+
+	/**
+	 * Logs a failure with its stack trace, which is only formatted on the
+	 * writer thread.
+	 */
+	void log(String message, Throwable error) {
+		if (size.incrementAndGet() > capacity) {
+			size.decrementAndGet();
+			dropped.incrementAndGet();
+			return;
+		}
+		entries.add(new Entry(System.currentTimeMillis(), message, error));
+	}
+
+	int getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Writes out everything logged so far and stops the writer thread.
+	 */
+	void close() {
+		running = false;
+		LockSupport.unpark(writer);
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		List<String> batch = new ArrayList<>(MAX_BATCH);
+		int reportedDrops = 0;
+		while (running) {
+			if (!drain(batch)) {
+				LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+			}
+			int drops = dropped.get();
+			if (drops != reportedDrops) {
+				batch.add(format(System.currentTimeMillis(), (drops - reportedDrops) + " log lines dropped"));
+				write(batch);
+				reportedDrops = drops;
+			}
+		}
+		while (drain(batch)) {
+			// Flush what was logged before close
+		}
+	}
+
+	// Writes one batch, returns false if there was nothing to write
+	private boolean drain(List<String> batch) {
+		Entry entry;
+		while (batch.size() < MAX_BATCH && (entry = entries.poll()) != null) {
+			size.decrementAndGet();
+			batch.add(format(entry.time, entry.error == null ? entry.message : entry.message + ": " + trace(entry.error)));
+		}
+		if (batch.isEmpty()) {
+			return false;
+		}
+		write(batch);
+		return true;
+	}
+
+	private void write(List<String> batch) {
+		for (Sink sink : sinks) {
+			try {
+				sink.write(batch);
+			} catch (IOException | RuntimeException e) {
+				// A broken sink must not stop the others, or the writer
+				e.printStackTrace();
+			}
+		}
+		batch.clear();
+	}
+
+	private static String format(long time, String message) {
+		return TIME_FORMAT.format(Instant.ofEpochMilli(time)) + " " + message;
+	}
+
+	private static String trace(Throwable error) {
+		StringWriter trace = new StringWriter();
+		error.printStackTrace(new PrintWriter(trace));
+		// The sinks end the line
+		return trace.toString().trim();
+	}
+
+	private static final class Entry {
+		final long time;
+		final String message;
+		// Null unless a failure is logged
+		final Throwable error;
+
+		Entry(long time, String message, Throwable error) {
+			this.time = time;
+			this.message = message;
+			this.error = error;
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package pokerserver;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and histograms of one {@link PokerServer}. The hot paths only touch
+ * {@link LongAdder}s and {@link Histogram}s, a few nanoseconds each. Gauges
+ * such as open tables, seated players or thread counts are read when the
+ * metrics are collected, so they cost nothing in between.
+ *
+ * Everything is collected through a {@link Visitor}. The same list feeds the
+ * Prometheus text format served by {@link MetricsEndpoint} and the attributes
+ * of this class as a JMX MBean. Histograms of durations are recorded in
+ * nanoseconds and exported in seconds.
+ */
+final class ServerMetrics implements DynamicMBean {
+	static final String OBJECT_NAME = "pokerserver:type=ServerMetrics";
+	private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+	static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+	// JMX attribute suffix of each quantile
+	private static final String[] QUANTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+	final LongAdder connectionsOpened = new LongAdder();
+	final LongAdder connectionsClosed = new LongAdder();
+	final LongAdder actionsReceived = new LongAdder();
+	final LongAdder actionsDropped = new LongAdder();
+	final LongAdder handsStarted = new LongAdder();
+	// Messages offered to clients' outbound queues and not yet taken by a writer
+	final LongAdder outboundQueued = new LongAdder();
+	// From an action entering the table's queue to its PLAYER_ACTION broadcast
+	final Histogram actionLatency = new Histogram();
+	// Evaluating the hands of one deal: the HandTracker updates street by street and resolveHand
+	final Histogram showdownTime = new Histogram();
+	// Messages a writer found queued for its client at once
+	final Histogram outboundBatch = new Histogram();
+
+	private final PokerServer server;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	ServerMetrics(PokerServer server) {
+		this.server = server;
+	}
+
+	/**
+	 * Receives every metric, in a fixed order.
+	 */
+	interface Visitor {
+		void counter(String name, String help, long value);
+
+		void gauge(String name, String help, double value);
+
+		/**
+		 * A counter per value of the label, e.g. one per table.
+		 */
+		void labeledCounter(String name, String help, String label, Map<String, Long> values);
+
+		/**
+		 * A histogram whose recorded values are multiplied by scale on export.
+		 */
+		void summary(String name, String help, Histogram.Snapshot snapshot, double scale);
+	}
+
+	void collect(Visitor visitor) {
+		long opened = connectionsOpened.sum();
+		long closed = connectionsClosed.sum();
+		visitor.counter("poker_connections_opened_total", "Client connections accepted.", opened);
+		visitor.counter("poker_connections_closed_total", "Client connections closed.", closed);
+		visitor.gauge("poker_connections_active", "Client connections open.", opened - closed);
+		visitor.counter("poker_actions_received_total", "Player actions queued at a table.", actionsReceived.sum());
+		visitor.counter("poker_actions_dropped_total", "Player actions dropped because a table's queue was full.",
+				actionsDropped.sum());
+		visitor.counter("poker_hands_started_total", "Hands dealt on all tables.", handsStarted.sum());
+		visitor.summary("poker_action_latency_seconds", "Time from an action being queued to its broadcast.",
+				actionLatency.snapshot(), 1 / NANOS_PER_SECOND);
+		visitor.summary("poker_showdown_seconds", "Time spent evaluating the hands of a deal and finding its winners.",
+				showdownTime.snapshot(), 1 / NANOS_PER_SECOND);
+		visitor.gauge("poker_outbound_queued_messages", "Messages waiting in clients' outbound queues.",
+				outboundQueued.sum());
+		visitor.summary("poker_outbound_batch_messages", "Messages a writer took from a client's queue at once.",
+				outboundBatch.snapshot(), 1);
+
+		TableManager tableManager = server.getTableManager();
+		Map<String, Long> tableActions = new LinkedHashMap<>();
+		int spectators = 0;
+		for (PokerTable table : tableManager.getTables()) {
+			tableActions.put(Integer.toString(table.getTableId()), table.getActionsHandled());
+			spectators += table.getSpectatorCount();
+		}
+		visitor.gauge("poker_tables_open", "Tables open.", tableManager.getTableCount());
+		visitor.labeledCounter("poker_table_actions_total", "Player actions applied, per table.", "table",
+				tableActions);
+		visitor.gauge("poker_players_registered", "Player IDs in use, seated or reconnecting.",
+				server.getSessions().size());
+		visitor.gauge("poker_spectators", "Spectators watching a table.", spectators);
+		visitor.gauge("poker_timers_pending", "Timeouts waiting in the timer wheel.",
+				server.getTimer().pendingCount());
+		visitor.counter("poker_log_dropped_total", "Log lines dropped because the log queue was full.",
+				server.getLog().getDroppedCount());
+		HandJournal journal = server.getJournal();
+		if (journal != null) {
+			visitor.counter("poker_journal_hands_total", "Hands written to the hand journal.",
+					journal.getWrittenCount());
+			visitor.counter("poker_journal_dropped_total", "Hands the hand journal could not write.",
+					journal.getDroppedCount());
+		}
+
+		visitor.gauge("jvm_threads_live", "Live threads.", threads.getThreadCount());
+		visitor.gauge("jvm_threads_daemon", "Live daemon threads.", threads.getDaemonThreadCount());
+		visitor.gauge("jvm_threads_peak", "Most live threads since the JVM started.", threads.getPeakThreadCount());
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server, replacing those
+	 * of an earlier server in the same JVM.
+	 */
+	void register() throws JMException {
+		MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (beanServer.isRegistered(name)) {
+			beanServer.unregisterMBean(name);
+		}
+		beanServer.registerMBean(this, name);
+	}
+
+	// JMX: every metric is a read-only attribute, histograms are split into count, mean, quantiles and max
+
+	private Map<String, Object> attributes() {
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		collect(new Visitor() {
+			@Override
+			public void counter(String name, String help, long value) {
+				attributes.put(name, value);
+			}
+
+			@Override
+			public void gauge(String name, String help, double value) {
+				attributes.put(name, value);
+			}
+
+			@Override
+			public void labeledCounter(String name, String help, String label, Map<String, Long> values) {
+				for (Map.Entry<String, Long> value : values.entrySet()) {
+					attributes.put(name + "_" + label + "_" + value.getKey(), value.getValue());
+				}
+			}
+
+			@Override
+			public void summary(String name, String help, Histogram.Snapshot snapshot, double scale) {
+				attributes.put(name + "_count", snapshot.getCount());
+				attributes.put(name + "_mean", snapshot.getMean() * scale);
+				for (int i = 0; i < QUANTILES.length; i++) {
+					attributes.put(name + "_" + QUANTILE_NAMES[i], snapshot.percentile(QUANTILES[i] * 100) * scale);
+				}
+				attributes.put(name + "_max", snapshot.getMax() * scale);
+			}
+		});
+		return attributes;
+	}
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException {
+		Object value = attributes().get(attribute);
+		if (value == null) {
+			throw new AttributeNotFoundException(attribute);
+		}
+		return value;
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] names) {
+		Map<String, Object> attributes = attributes();
+		AttributeList list = new AttributeList();
+		for (String name : names) {
+			Object value = attributes.get(name);
+			if (value != null) {
+				list.add(new Attribute(name, value));
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) {
+		throw new UnsupportedOperationException(actionName);
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		// Built on every call, since tables come and go
+		List<MBeanAttributeInfo> infos = new ArrayList<>();
+		for (Map.Entry<String, Object> attribute : attributes().entrySet()) {
+			infos.add(new MBeanAttributeInfo(attribute.getKey(), attribute.getValue().getClass().getName(),
+					attribute.getKey(), true, false, false));
+		}
+		return new MBeanInfo(getClass().getName(), "Poker server metrics",
+				infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+	}
+}
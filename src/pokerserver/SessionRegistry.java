@@ -0,0 +1,101 @@
+package pokerserver;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Every player ID in use on a server and the table it is seated at. IDs are
+ * claimed with a single putIfAbsent, so of two clients joining with the same
+ * ID exactly one wins, and joins on different tables never wait for each
+ * other. Seats are claimed the same way, see {@link PokerTable#claimSeat}.
+ *
+ * IDs are public, every player at a table sees them, so a seated player also
+ * gets a random reconnect token with their seat. Only a client presenting it
+ * may take the seat back during the grace period.
+ */
+final class SessionRegistry {
+	private static final int TOKEN_BYTES = 16;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final ConcurrentMap<String, Registration> players = new ConcurrentHashMap<>();
+	private final SecureRandom random = new SecureRandom();
+
+	/**
+	 * Reserves the ID, returns false if it is already in use.
+	 */
+	boolean claim(String playerId) {
+		return players.putIfAbsent(playerId, new Registration()) == null;
+	}
+
+	/**
+	 * Records the table where the player holding a claimed ID got a seat.
+	 */
+	void assign(String playerId, PokerTable table) {
+		Registration registration = players.get(playerId);
+		if (registration != null) {
+			registration.table = table;
+		}
+	}
+
+	/**
+	 * Returns the table of the player, or null if the ID is free or its owner
+	 * is still looking for a seat.
+	 */
+	PokerTable getTable(String playerId) {
+		Registration registration = players.get(playerId);
+		return registration == null ? null : registration.table;
+	}
+
+	/**
+	 * Issues a new reconnect token for a claimed ID, sent with its seat. The
+	 * previous token stops working. Returns null if the ID is free.
+	 */
+	String issueToken(String playerId) {
+		Registration registration = players.get(playerId);
+		if (registration == null) {
+			return null;
+		}
+		byte[] bytes = new byte[TOKEN_BYTES];
+		random.nextBytes(bytes);
+		char[] token = new char[TOKEN_BYTES * 2];
+		for (int i = 0; i < TOKEN_BYTES; i++) {
+			token[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+			token[2 * i + 1] = HEX[bytes[i] & 0xF];
+		}
+		registration.token = new String(token);
+		return registration.token;
+	}
+
+	/**
+	 * Returns true if the token is the one last issued for the ID.
+	 */
+	boolean checkToken(String playerId, String token) {
+		Registration registration = players.get(playerId);
+		String expected = registration == null ? null : registration.token;
+		if (expected == null || token == null) {
+			return false;
+		}
+		// Constant time, so a guess does not learn how much of it was right
+		return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII),
+				token.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Frees an ID once its owner has left for good or failed to get a seat.
+	 */
+	void release(String playerId) {
+		players.remove(playerId);
+	}
+
+	int size() {
+		return players.size();
+	}
+
+	private static final class Registration {
+		volatile PokerTable table;
+		volatile String token;
+	}
+}
@@ -0,0 +1,244 @@
+package pokerserver;
+
+import java.util.List;
+
+/**
+ * Table driven evaluator for hands of up to seven cards.
+ *
+ * Cards are folded into one 13-bit rank mask per suit, and every question the
+ * old {@link HandEvaluator} answered with streams (pairs, trips, flushes,
+ * straights, kickers) is answered with a few bitwise operations and a lookup
+ * into tables that are built once when the class is loaded. Nothing is
+ * allocated per evaluation.
+ *
+ * The result is a single int strength: the {@link HandRank} value in bits 20-23
+ * followed by up to five significant rank ordinals, four bits each, from the
+ * most to the least significant. A larger strength is a better hand and equal
+ * strengths are a split pot.
+ */
+public final class SevenCardEvaluator {
+
+	static final int CATEGORY_SHIFT = 20;
+
+	private static final HandRank[] HAND_RANKS = HandRank.values();
+	private static final int RANK_COUNT = 13;
+	private static final int MASK_COUNT = 1 << RANK_COUNT;
+
+	// Ordinal of the highest card of the best straight in the mask, 0 if none (a wheel is 3)
+	private static final byte[] STRAIGHT_HIGH = new byte[MASK_COUNT];
+	// The five highest rank ordinals of the mask packed as nibbles, highest first
+	private static final int[] TOP_FIVE = new int[MASK_COUNT];
+	// Ranks that would complete a straight for a mask that has none yet, as a rank mask
+	private static final short[] STRAIGHT_OUTS = new short[MASK_COUNT];
+
+	static {
+		for (int mask = 0; mask < MASK_COUNT; mask++) {
+			// A wheel (A2345) is a five high straight, so the ace also counts below the two
+			int withLowAce = (mask << 1) | ((mask >>> (RANK_COUNT - 1)) & 1);
+			for (int high = RANK_COUNT - 1; high >= 3; high--) {
+				int run = 0x1F << (high - 3);
+				if ((withLowAce & run) == run) {
+					STRAIGHT_HIGH[mask] = (byte) high;
+					break;
+				}
+			}
+
+			int packed = 0;
+			int taken = 0;
+			for (int rank = RANK_COUNT - 1; rank >= 0 && taken < 5; rank--) {
+				if ((mask & (1 << rank)) != 0) {
+					packed |= rank << (4 * (4 - taken));
+					taken++;
+				}
+			}
+			TOP_FIVE[mask] = packed;
+		}
+		for (int mask = 0; mask < MASK_COUNT; mask++) {
+			if (STRAIGHT_HIGH[mask] == 0) {
+				int outs = 0;
+				for (int rank = 0; rank < RANK_COUNT; rank++) {
+					if (STRAIGHT_HIGH[mask | 1 << rank] != 0) {
+						outs |= 1 << rank;
+					}
+				}
+				STRAIGHT_OUTS[mask] = (short) outs;
+			}
+		}
+	}
+
+	private SevenCardEvaluator() {
+	}
+
+	/**
+	 * Evaluates the best five card hand that can be made from the given cards.
+	 * Works for any number of cards up to seven.
+	 */
+	public static int evaluate(List<Card> cards) {
+		return evaluate(CardSet.of(cards));
+	}
+
+	/**
+	 * Evaluates the best five card hand in a {@link CardSet} mask of up to seven
+	 * cards.
+	 */
+	public static int evaluate(long cards) {
+		return evaluate((int) cards & CardSet.RANK_MASK, (int) (cards >>> 16) & CardSet.RANK_MASK,
+				(int) (cards >>> 32) & CardSet.RANK_MASK, (int) (cards >>> 48) & CardSet.RANK_MASK);
+	}
+
+	/**
+	 * Evaluates a hand given as one rank mask per suit, bit n standing for the
+	 * rank with ordinal n.
+	 */
+	static int evaluate(int hearts, int spades, int clubs, int diamonds) {
+		return evaluate(hearts, spades, clubs, diamonds, flushMask(hearts, spades, clubs, diamonds));
+	}
+
+	/**
+	 * Evaluates every hand against the same board at once. The board is split
+	 * into suits once, and only a suit with three or more cards on the board
+	 * is checked for a flush. Fills strengths with each hand's strength and
+	 * winners with the indices of the hands sharing the best one, in order,
+	 * and returns how many there are.
+	 *
+	 * @param hands     {@link CardSet} masks of the players' hole cards, two each
+	 * @param strengths receives one strength per hand
+	 * @param winners   receives the winning indices, at least as long as hands
+	 */
+	public static int evaluateAll(long board, long[] hands, int[] strengths, int[] winners) {
+		int boardHearts = (int) board & CardSet.RANK_MASK;
+		int boardSpades = (int) (board >>> 16) & CardSet.RANK_MASK;
+		int boardClubs = (int) (board >>> 32) & CardSet.RANK_MASK;
+		int boardDiamonds = (int) (board >>> 48) & CardSet.RANK_MASK;
+		// With five board cards at most one suit has three or more, and only it can make a flush
+		int flushShift = -1;
+		for (int suit = 0; suit < 4; suit++) {
+			if (Long.bitCount(board & ((long) CardSet.RANK_MASK << (suit * 16))) >= 3) {
+				flushShift = suit * 16;
+			}
+		}
+
+		int best = -1;
+		int winnerCount = 0;
+		for (int i = 0; i < hands.length; i++) {
+			int flushSuit = 0;
+			if (flushShift >= 0) {
+				int suited = (int) ((hands[i] | board) >>> flushShift) & CardSet.RANK_MASK;
+				flushSuit = Integer.bitCount(suited) >= 5 ? suited : 0;
+			}
+			int strength = evaluate(boardHearts | (int) hands[i] & CardSet.RANK_MASK,
+					boardSpades | (int) (hands[i] >>> 16) & CardSet.RANK_MASK,
+					boardClubs | (int) (hands[i] >>> 32) & CardSet.RANK_MASK,
+					boardDiamonds | (int) (hands[i] >>> 48) & CardSet.RANK_MASK, flushSuit);
+			strengths[i] = strength;
+			if (strength > best) {
+				best = strength;
+				winnerCount = 0;
+			}
+			if (strength == best) {
+				winners[winnerCount++] = i;
+			}
+		}
+		return winnerCount;
+	}
+
+	private static int evaluate(int hearts, int spades, int clubs, int diamonds, int flushSuit) {
+		if (flushSuit != 0) {
+			int straightHigh = STRAIGHT_HIGH[flushSuit];
+			if (straightHigh != 0) {
+				HandRank rank = straightHigh == RANK_COUNT - 1 ? HandRank.ROYAL_FLUSH : HandRank.STRAIGHT_FLUSH;
+				return category(rank) | straightHigh << 16;
+			}
+		}
+
+		int all = hearts | spades | clubs | diamonds;
+		int quads = hearts & spades & clubs & diamonds;
+		if (quads != 0) {
+			int quadRank = highest(quads);
+			return category(HandRank.FOUR_OF_A_KIND) | quadRank << 16 | top(all & ~(1 << quadRank), 1) << 12;
+		}
+
+		int threeOrMore = (hearts & spades & clubs) | (hearts & spades & diamonds) | (hearts & clubs & diamonds)
+				| (spades & clubs & diamonds);
+		int twoOrMore = (hearts & spades) | (hearts & clubs) | (hearts & diamonds) | (spades & clubs)
+				| (spades & diamonds) | (clubs & diamonds);
+		int pairs = twoOrMore & ~threeOrMore;
+
+		if (threeOrMore != 0) {
+			int tripRank = highest(threeOrMore);
+			// The pair of a full house can come from a second set of trips
+			int pairCandidates = (threeOrMore & ~(1 << tripRank)) | pairs;
+			if (pairCandidates != 0) {
+				return category(HandRank.FULL_HOUSE) | tripRank << 16 | highest(pairCandidates) << 12;
+			}
+		}
+
+		if (flushSuit != 0) {
+			return category(HandRank.FLUSH) | TOP_FIVE[flushSuit];
+		}
+
+		int straightHigh = STRAIGHT_HIGH[all];
+		if (straightHigh != 0) {
+			return category(HandRank.STRAIGHT) | straightHigh << 16;
+		}
+
+		if (threeOrMore != 0) {
+			int tripRank = highest(threeOrMore);
+			return category(HandRank.THREE_OF_A_KIND) | tripRank << 16 | top(all & ~(1 << tripRank), 2) << 8;
+		}
+
+		if (pairs != 0) {
+			int highPair = highest(pairs);
+			int otherPairs = pairs & ~(1 << highPair);
+			if (otherPairs != 0) {
+				int lowPair = highest(otherPairs);
+				int kickers = all & ~(1 << highPair) & ~(1 << lowPair);
+				return category(HandRank.TWO_PAIR) | highPair << 16 | lowPair << 12 | top(kickers, 1) << 8;
+			}
+			return category(HandRank.PAIR) | highPair << 16 | top(all & ~(1 << highPair), 3) << 4;
+		}
+
+		return category(HandRank.HIGH_CARD) | TOP_FIVE[all];
+	}
+
+	/**
+	 * Returns the category of a strength produced by this evaluator.
+	 */
+	public static HandRank getHandRank(int strength) {
+		return HAND_RANKS[(strength >>> CATEGORY_SHIFT) - 1];
+	}
+
+	/**
+	 * Returns the ranks that would give a rank mask without a straight one, as
+	 * a rank mask: two ranks for an open ended draw, one for a gutshot.
+	 */
+	static int straightOuts(int rankMask) {
+		return STRAIGHT_OUTS[rankMask];
+	}
+
+	private static int flushMask(int hearts, int spades, int clubs, int diamonds) {
+		if (Integer.bitCount(hearts) >= 5) {
+			return hearts;
+		} else if (Integer.bitCount(spades) >= 5) {
+			return spades;
+		} else if (Integer.bitCount(clubs) >= 5) {
+			return clubs;
+		} else if (Integer.bitCount(diamonds) >= 5) {
+			return diamonds;
+		}
+		return 0;
+	}
+
+	private static int category(HandRank rank) {
+		return rank.getHandRank() << CATEGORY_SHIFT;
+	}
+
+	private static int highest(int mask) {
+		return 31 - Integer.numberOfLeadingZeros(mask);
+	}
+
+	// The n highest rank ordinals of the mask packed as nibbles, highest first
+	private static int top(int mask, int n) {
+		return TOP_FIVE[mask] >>> (4 * (5 - n));
+	}
+}
@@ -0,0 +1,14 @@
+package pokerserver;
+
+/**
+ * What to do with a client whose outbound queue is full because it does not
+ * read fast enough.
+ */
+enum SlowConsumerPolicy {
+	/** Discard the new message and keep the connection. */
+	DROP,
+	/** Close the connection. */
+	DISCONNECT,
+	/** Discard everything queued and send a snapshot of the table instead. */
+	RESYNC
+}
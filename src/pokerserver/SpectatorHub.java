@@ -0,0 +1,209 @@
+package pokerserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The read-only audience of one table. A table broadcast reaches it as one
+ * call on the game thread, and the fan-out to spectators runs on the server's
+ * fan-out executor. It can also run after a broadcast delay. Either way, no
+ * number of spectators slows down the players' action loop.
+ *
+ * Spectators are spread over groups of at most {@link #GROUP_SIZE}, and each
+ * group is drained by its own task. A featured table with thousands of
+ * observers therefore fans out on several threads, and every spectator
+ * still sees the messages in order. All of them share the same
+ * {@link OutboundMessage}, so a message is encoded once per protocol. Only
+ * broadcasts reach the hub, never {@link PokerTable#sendTo}, so hole cards
+ * are never shown to spectators.
+ */
+final class SpectatorHub {
+	static final int GROUP_SIZE = 256;
+
+	private final Executor executor;
+	private final TimerWheel timer;
+	private final long delayMs;
+	// Only touched in release(), which is synchronized
+	private final List<Group> groups = new ArrayList<>();
+	private final Map<ClientConnection, Group> membership = new ConcurrentHashMap<>();
+	// Entries waiting for the broadcast delay, in release order
+	private final Queue<Entry> delayed = new ConcurrentLinkedQueue<>();
+	// Nothing is queued until the first spectator arrives
+	private volatile boolean active = false;
+
+	SpectatorHub(Executor executor, TimerWheel timer, long delayMs) {
+		this.executor = executor;
+		this.timer = timer;
+		this.delayMs = delayMs;
+	}
+
+	void publish(OutboundMessage message) {
+		if (active) {
+			submit(new Entry(Entry.MESSAGE, message, null, null));
+		}
+	}
+
+	/**
+	 * Adds a spectator. The snapshot must be taken in the same order as the
+	 * published messages, see {@link TableState#watch}.
+	 */
+	void attach(ClientConnection connection, String snapshot) {
+		active = true;
+		submit(new Entry(Entry.ATTACH, null, connection, snapshot));
+	}
+
+	void detach(ClientConnection connection) {
+		submit(new Entry(Entry.DETACH, null, connection, null));
+	}
+
+	/**
+	 * Sends a spectator a new snapshot in its place among the published
+	 * messages, through the group it is already in. Taken like the snapshot of
+	 * {@link #attach}, see {@link TableState#resync(SpectatorHub, ClientConnection)}.
+	 */
+	void resync(ClientConnection connection, String snapshot) {
+		submit(new Entry(Entry.RESYNC, null, connection, snapshot));
+	}
+
+	int getSpectatorCount() {
+		return membership.size();
+	}
+
+	long getDelayMs() {
+		return delayMs;
+	}
+
+	private void submit(Entry entry) {
+		if (delayMs <= 0) {
+			release(entry);
+			return;
+		}
+		entry.releaseAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+		delayed.add(entry);
+		timer.schedule(this::releaseDue, delayMs, TimeUnit.MILLISECONDS);
+	}
+
+	// Timeouts may run on several threads at once, the lock keeps the entries in order
+	private synchronized void releaseDue() {
+		long now = System.nanoTime();
+		Entry entry;
+		while ((entry = delayed.peek()) != null && entry.releaseAt - now <= 0) {
+			delayed.poll();
+			release(entry);
+		}
+	}
+
+	private synchronized void release(Entry entry) {
+		switch (entry.kind) {
+		case Entry.MESSAGE:
+			for (Group group : groups) {
+				group.enqueue(entry);
+			}
+			break;
+		case Entry.ATTACH: {
+			Group group = null;
+			for (Group candidate : groups) {
+				if (candidate.size < GROUP_SIZE) {
+					group = candidate;
+					break;
+				}
+			}
+			if (group == null) {
+				group = new Group();
+				groups.add(group);
+			}
+			group.size++;
+			membership.put(entry.connection, group);
+			group.enqueue(entry);
+			break;
+		}
+		case Entry.DETACH: {
+			Group group = membership.remove(entry.connection);
+			if (group != null) {
+				group.size--;
+				group.enqueue(entry);
+			}
+			break;
+		}
+		case Entry.RESYNC: {
+			// Behind every message its group already has for the spectator, none is sent twice
+			Group group = membership.get(entry.connection);
+			if (group != null) {
+				group.enqueue(entry);
+			}
+		}
+		}
+	}
+
+	// A message, or an attach, detach or resync of one spectator
+	private static final class Entry {
+		static final int MESSAGE = 0;
+		static final int ATTACH = 1;
+		static final int DETACH = 2;
+		static final int RESYNC = 3;
+
+		final int kind;
+		final OutboundMessage message;
+		final ClientConnection connection;
+		final String snapshot;
+		long releaseAt;
+
+		Entry(int kind, OutboundMessage message, ClientConnection connection, String snapshot) {
+			this.kind = kind;
+			this.message = message;
+			this.connection = connection;
+			this.snapshot = snapshot;
+		}
+	}
+
+	// Spectators drained by one task at a time, in the order entries were released
+	private final class Group {
+		private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+		// Only touched by the drain task
+		private final List<ClientConnection> members = new ArrayList<>();
+		// Assigned spectators, only touched in release()
+		int size;
+
+		void enqueue(Entry entry) {
+			queue.add(entry);
+			if (scheduled.compareAndSet(false, true)) {
+				executor.execute(this::drain);
+			}
+		}
+
+		private void drain() {
+			do {
+				Entry entry;
+				while ((entry = queue.poll()) != null) {
+					switch (entry.kind) {
+					case Entry.MESSAGE:
+						for (ClientConnection member : members) {
+							member.send(entry.message);
+						}
+						break;
+					case Entry.ATTACH:
+						entry.connection.send(entry.snapshot);
+						members.add(entry.connection);
+						break;
+					case Entry.DETACH:
+						members.remove(entry.connection);
+						break;
+					case Entry.RESYNC:
+						entry.connection.send(entry.snapshot);
+						break;
+					}
+				}
+				scheduled.set(false);
+				// An entry may have been queued after the last poll but before the flag was cleared
+			} while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+		}
+	}
+}
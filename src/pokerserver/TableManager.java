@@ -0,0 +1,79 @@
+package pokerserver;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hosts the tables of a {@link PokerServer} and routes joining players to them.
+ * Players fill the existing tables first, and a new table is opened when all of
+ * them are full.
+ */
+public class TableManager {
+	static final int DEFAULT_MAX_TABLES = 500;
+
+	private final PokerServer server;
+	private final int maxTables;
+	private final List<PokerTable> tables = new CopyOnWriteArrayList<>();
+	private int nextTableId = 0;
+
+	TableManager(PokerServer server, int maxTables) {
+		this.server = server;
+		this.maxTables = maxTables;
+	}
+
+	/**
+	 * Seats the player at a table, returns the table or null if every table is
+	 * full and no more can be opened. The seat taken is left in the table's seats.
+	 * Only opening a table takes a lock, seats are claimed with CAS.
+	 */
+	PokerTable joinTable(String playerId) {
+		for (PokerTable table : tables) {
+			if (table.claimSeat(playerId) != -1) {
+				return table;
+			}
+		}
+		synchronized (this) {
+			// Another join may have opened a table while we were scanning
+			for (PokerTable table : tables) {
+				if (table.claimSeat(playerId) != -1) {
+					return table;
+				}
+			}
+			if (tables.size() >= maxTables) {
+				return null;
+			}
+			PokerTable table = new PokerTable(server, nextTableId++);
+			table.claimSeat(playerId);
+			tables.add(table);
+			server.log("Opened table " + table.getTableId());
+			return table;
+		}
+	}
+
+	/**
+	 * Returns the table with the given ID, or the featured table (the first one
+	 * open) for -1. Returns null if there is no such table.
+	 */
+	PokerTable getTable(int tableId) {
+		for (PokerTable table : tables) {
+			if (tableId == -1 || table.getTableId() == tableId) {
+				return table;
+			}
+		}
+		return null;
+	}
+
+	List<PokerTable> getTables() {
+		return tables;
+	}
+
+	int getTableCount() {
+		return tables.size();
+	}
+
+	void shutdown() {
+		for (PokerTable table : tables) {
+			table.shutdown();
+		}
+	}
+}
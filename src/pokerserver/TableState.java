@@ -0,0 +1,145 @@
+package pokerserver;
+
+/**
+ * Versioned copy of what clients show of a table: who sits where, their chips,
+ * the board and the pot. Every change takes the next sequence number and is
+ * broadcast as a delta naming only the field that changed, for example
+ * "STATE 42 CHIPS 3 180", so an event costs the same whatever the size of the
+ * table. A client that sees a gap in the sequence sends RESYNC and gets a
+ * full snapshot:
+ *
+ * <pre>
+ * SNAPSHOT seq pot seat,id,chips;seat,id,chips [card ...]
+ * </pre>
+ *
+ * with "-" for an empty seat list. Deltas are broadcast while holding this
+ * object's lock, which keeps them in sequence order on every client queue, and
+ * clients are attached and resynced under the same lock so their snapshot
+ * lines up with the deltas that follow it.
+ */
+final class TableState {
+	private static final int MAX_BOARD = 5;
+
+	private final PokerTable table;
+	private final String[] seatIds = new String[PokerTable.MAX_PLAYERS];
+	private final int[] chips = new int[PokerTable.MAX_PLAYERS];
+	private final Card[] board = new Card[MAX_BOARD];
+	private int boardSize;
+	private int pot;
+	private int sequence;
+
+	TableState(PokerTable table) {
+		this.table = table;
+	}
+
+	synchronized void seat(int seat, String playerId) {
+		seatIds[seat] = playerId;
+		chips[seat] = 0;
+		publish("SEAT " + seat + " " + playerId);
+	}
+
+	/**
+	 * Empties the seat if the player still holds it, a player who took the
+	 * seat since keeps it.
+	 */
+	synchronized void clearSeat(int seat, String playerId) {
+		if (!playerId.equals(seatIds[seat])) {
+			return;
+		}
+		seatIds[seat] = null;
+		chips[seat] = 0;
+		publish("SEAT " + seat + " -");
+	}
+
+	synchronized void setChips(int seat, int value) {
+		if (seatIds[seat] == null || chips[seat] == value) {
+			return;
+		}
+		chips[seat] = value;
+		publish("CHIPS " + seat + " " + value);
+	}
+
+	synchronized void dealCard(Card card) {
+		board[boardSize++] = card;
+		publish("CARD " + card.getCode());
+	}
+
+	synchronized void setPot(int value) {
+		if (pot == value) {
+			return;
+		}
+		pot = value;
+		publish("POT " + value);
+	}
+
+	/**
+	 * Clears the board and the pot for a new hand.
+	 */
+	synchronized void newHand() {
+		boardSize = 0;
+		pot = 0;
+		publish("NEW_HAND");
+	}
+
+	/**
+	 * Starts broadcasting to the client, first sending it a snapshot.
+	 */
+	synchronized void attach(String playerId, ClientConnection connection) {
+		table.addClient(playerId, connection);
+		connection.send(snapshot());
+	}
+
+	/**
+	 * Adds a spectator to the table's {@link SpectatorHub}, which sends it this
+	 * snapshot ahead of the deltas that follow.
+	 */
+	synchronized void watch(SpectatorHub spectators, ClientConnection connection) {
+		spectators.attach(connection, snapshot());
+	}
+
+	/**
+	 * Sends a spectator a snapshot after it reported a gap, through the
+	 * {@link SpectatorHub} like the deltas it missed.
+	 */
+	synchronized void resync(SpectatorHub spectators, ClientConnection connection) {
+		spectators.resync(connection, snapshot());
+	}
+
+	/**
+	 * Sends the client a snapshot after it reported a gap in the sequence.
+	 */
+	synchronized void resync(ClientConnection connection) {
+		connection.send(snapshot());
+	}
+
+	synchronized String snapshot() {
+		StringBuilder snapshot = new StringBuilder("SNAPSHOT ");
+		snapshot.append(sequence).append(' ').append(pot).append(' ');
+		int seated = 0;
+		for (int i = 0; i < seatIds.length; i++) {
+			if (seatIds[i] != null) {
+				if (seated++ > 0) {
+					snapshot.append(';');
+				}
+				snapshot.append(i).append(',').append(seatIds[i]).append(',').append(chips[i]);
+			}
+		}
+		if (seated == 0) {
+			snapshot.append('-');
+		}
+		for (int i = 0; i < boardSize; i++) {
+			snapshot.append(' ').append(board[i].getCode());
+		}
+		return snapshot.toString();
+	}
+
+	synchronized int getSequence() {
+		return sequence;
+	}
+
+	// Called with the lock held, after the field has been updated
+	private void publish(String delta) {
+		sequence++;
+		table.broadcast("STATE " + sequence + " " + delta);
+	}
+}
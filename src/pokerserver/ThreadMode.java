@@ -0,0 +1,58 @@
+package pokerserver;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Kind of thread the server runs blocking client handlers and their writers on.
+ *
+ * Virtual threads need Java 21 while the project still compiles for Java 8, so
+ * their factory is looked up reflectively. On an older runtime
+ * {@link #VIRTUAL} falls back to platform threads.
+ */
+enum ThreadMode {
+	PLATFORM, VIRTUAL;
+
+	private static final ThreadFactory VIRTUAL_FACTORY = lookupVirtualFactory();
+
+	/**
+	 * Returns a factory naming its threads prefix-0, prefix-1, ...
+	 */
+	ThreadFactory factory(String prefix) {
+		ThreadFactory base = this == VIRTUAL && VIRTUAL_FACTORY != null ? VIRTUAL_FACTORY
+				: Executors.defaultThreadFactory();
+		AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread thread = base.newThread(r);
+			thread.setName(prefix + "-" + count.getAndIncrement());
+			return thread;
+		};
+	}
+
+	Thread newThread(Runnable task, String name) {
+		Thread thread = factory(name).newThread(task);
+		thread.setName(name);
+		return thread;
+	}
+
+	/**
+	 * True if this mode really runs on virtual threads in the current JVM.
+	 */
+	boolean isVirtualAvailable() {
+		return this == VIRTUAL && VIRTUAL_FACTORY != null;
+	}
+
+	private static ThreadFactory lookupVirtualFactory() {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Object builder = ofVirtual.invoke(null);
+			// Go through the public Thread.Builder interface, the builder class itself is internal
+			Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+}
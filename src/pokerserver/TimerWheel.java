@@ -0,0 +1,277 @@
+package pokerserver;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel shared by every table of a server: round-start
+ * countdowns, action clocks and disconnect grace periods all live in it, and a
+ * single thread advances it. The thread only wakes for ticks whose bucket holds
+ * a timeout, or when a new one is scheduled, so an idle wheel costs nothing.
+ *
+ * Scheduling and cancelling are O(1) from any thread: new timeouts go through a
+ * lock-free queue that the wheel thread drains into the bucket of their
+ * deadline, and cancelled ones are unlinked from their bucket the same way.
+ * Expired tasks are handed to an executor, so a task waiting for a table's
+ * lock does not hold up the timeouts of every other table.
+ */
+final class TimerWheel {
+	static final long DEFAULT_TICK_MS = 1;
+	static final int DEFAULT_WHEEL_SIZE = 1024;
+
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+	private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+	private final Executor executor;
+	private final ServerLog log;
+	private final Thread worker;
+	private final long startTime;
+	private volatile boolean running = true;
+	// Set while the worker parks, so only then does scheduling have to wake it
+	private volatile boolean sleeping = false;
+	private long tick;
+
+	/**
+	 * @param executor runs the expired tasks
+	 * @param log      receives the failures of tasks
+	 */
+	TimerWheel(String name, Executor executor, ServerLog log) {
+		this(name, DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE, executor, log);
+	}
+
+	/**
+	 * @param wheelSize number of buckets, rounded up to a power of two
+	 */
+	TimerWheel(String name, long tickMs, int wheelSize, Executor executor, ServerLog log) {
+		int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new Bucket();
+		}
+		this.mask = size - 1;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+		this.executor = executor;
+		this.log = log;
+		this.startTime = System.nanoTime();
+		this.worker = new Thread(this::run, name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Hands the task to the executor once the delay has elapsed, rounded up to
+	 * the next tick.
+	 */
+	Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+		Timeout timeout = new Timeout(this, task, deadline);
+		pendingTimeouts.add(timeout);
+		// The worker may be parked until a later tick, or indefinitely
+		if (sleeping) {
+			LockSupport.unpark(worker);
+		}
+		return timeout;
+	}
+
+	/**
+	 * Approximate number of timeouts waiting in the wheel, for monitoring only
+	 * since buckets are read without synchronization.
+	 */
+	int pendingCount() {
+		int count = pendingTimeouts.size();
+		for (Bucket bucket : wheel) {
+			count += bucket.size;
+		}
+		return count;
+	}
+
+	void stop() {
+		running = false;
+		worker.interrupt();
+	}
+
+	private void run() {
+		while (running) {
+			removeCancelled();
+			transferPending();
+			long next = nextOccupiedTick();
+			if (next < 0) {
+				// Nothing to wait for until something is scheduled
+				sleep(-1);
+				continue;
+			}
+			long sleep = startTime + (next + 1) * tickNanos - System.nanoTime();
+			if (sleep > 0) {
+				// Woken early by a new timeout, which may be due sooner
+				sleep(sleep);
+				continue;
+			}
+			// The buckets skipped on the way were empty, so no timeout misses a round
+			tick = next;
+			wheel[(int) (tick & mask)].expire(tick * tickNanos + tickNanos);
+			tick++;
+		}
+	}
+
+	// Parks for the nanoseconds, or until unparked if negative, unless new timeouts are already waiting
+	private void sleep(long nanos) {
+		sleeping = true;
+		if (pendingTimeouts.isEmpty() && running) {
+			if (nanos < 0) {
+				LockSupport.park(this);
+			} else {
+				LockSupport.parkNanos(this, nanos);
+			}
+		}
+		sleeping = false;
+	}
+
+	// First tick from the current one whose bucket holds a timeout, -1 if the wheel is empty
+	private long nextOccupiedTick() {
+		for (int i = 0; i < wheel.length; i++) {
+			if (wheel[(int) ((tick + i) & mask)].size > 0) {
+				return tick + i;
+			}
+		}
+		return -1;
+	}
+
+	private void transferPending() {
+		Timeout timeout;
+		while ((timeout = pendingTimeouts.poll()) != null) {
+			if (timeout.state.get() != Timeout.ACTIVE) {
+				continue;
+			}
+			long calculated = timeout.deadline / tickNanos;
+			timeout.remainingRounds = (calculated - tick) / wheel.length;
+			// A deadline already in the past goes into the current tick
+			long ticks = Math.max(calculated, tick);
+			wheel[(int) (ticks & mask)].add(timeout);
+		}
+	}
+
+	private void removeCancelled() {
+		Timeout timeout;
+		while ((timeout = cancelledTimeouts.poll()) != null) {
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+			}
+		}
+	}
+
+	/**
+	 * Handle of a scheduled task.
+	 */
+	static final class Timeout {
+		private static final int ACTIVE = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+
+		private final TimerWheel timer;
+		private final Runnable task;
+		private final long deadline;
+		private final AtomicInteger state = new AtomicInteger(ACTIVE);
+		// Only touched by the wheel thread
+		private long remainingRounds;
+		private Bucket bucket;
+		private Timeout prev;
+		private Timeout next;
+
+		private Timeout(TimerWheel timer, Runnable task, long deadline) {
+			this.timer = timer;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Prevents the task from running. Returns false if it already ran or was
+		 * already cancelled.
+		 */
+		boolean cancel() {
+			if (!state.compareAndSet(ACTIVE, CANCELLED)) {
+				return false;
+			}
+			timer.cancelledTimeouts.add(this);
+			return true;
+		}
+
+		boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+
+		private void expire() {
+			if (!state.compareAndSet(ACTIVE, EXPIRED)) {
+				return;
+			}
+			try {
+				timer.executor.execute(() -> {
+					try {
+						task.run();
+					} catch (RuntimeException e) {
+						timer.log.log("Timer task failed", e);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// The executor is shutting down with the server
+			}
+		}
+	}
+
+	// Doubly linked list of the timeouts hashed to one slot of the wheel
+	private static final class Bucket {
+		private Timeout head;
+		private Timeout tail;
+		private int size;
+
+		void add(Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+			size++;
+		}
+
+		void remove(Timeout timeout) {
+			if (timeout.prev != null) {
+				timeout.prev.next = timeout.next;
+			} else {
+				head = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.prev = timeout.prev;
+			} else {
+				tail = timeout.prev;
+			}
+			timeout.prev = timeout.next = null;
+			timeout.bucket = null;
+			size--;
+		}
+
+		void expire(long tickDeadline) {
+			Timeout timeout = head;
+			while (timeout != null) {
+				Timeout next = timeout.next;
+				if (timeout.remainingRounds <= 0 && timeout.deadline <= tickDeadline) {
+					remove(timeout);
+					timeout.expire();
+				} else if (timeout.state.get() == Timeout.CANCELLED) {
+					remove(timeout);
+				} else {
+					timeout.remainingRounds--;
+				}
+				timeout = next;
+			}
+		}
+	}
+}
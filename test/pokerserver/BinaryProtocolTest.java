@@ -0,0 +1,81 @@
+package pokerserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class BinaryProtocolTest {
+	private final Command command = new Command();
+
+	@Test
+	public void decodesConsecutiveFrames() {
+		ByteBuffer in = ByteBuffer.allocate(64);
+		BinaryProtocol.encodeCommand(in, new Command().set(Command.JOIN, null, 0, "alice"));
+		BinaryProtocol.encodeCommand(in, new Command().set(Command.ACTION, ActionType.RAISE, 300, null));
+		in.flip();
+
+		assertTrue(BinaryProtocol.decode(in, command));
+		assertEquals(Command.JOIN, command.opcode);
+		assertEquals("alice", command.text);
+		assertTrue(BinaryProtocol.decode(in, command));
+		assertEquals(Command.ACTION, command.opcode);
+		assertEquals(ActionType.RAISE, command.action);
+		assertEquals(300, command.amount);
+		assertFalse(in.hasRemaining());
+		assertFalse(BinaryProtocol.decode(in, command));
+	}
+
+	@Test
+	public void rejectsActionShorterThanItsPayload() {
+		// ACTION RAISE without its amount, followed by a RESYNC whose byte must not become the amount
+		ByteBuffer in = frames(new byte[] { 2, BinaryProtocol.ACTION, (byte) ActionType.RAISE.ordinal() },
+				new byte[] { 1, BinaryProtocol.RESYNC });
+		assertMalformed(in);
+	}
+
+	@Test
+	public void rejectsJoinShorterThanItsString() {
+		// Claims five bytes of ID but the frame ends after two
+		ByteBuffer in = frames(new byte[] { 4, BinaryProtocol.JOIN, 5, 'a', 'b' },
+				new byte[] { 2, BinaryProtocol.WATCH, 7 });
+		assertMalformed(in);
+	}
+
+	@Test
+	public void rejectsBytesLeftOver() {
+		ByteBuffer in = frames(new byte[] { 4, BinaryProtocol.ACTION, (byte) ActionType.CALL.ordinal(), 0, 9 });
+		assertMalformed(in);
+	}
+
+	@Test
+	public void skipsPayloadOfUnknownOpcode() {
+		ByteBuffer in = frames(new byte[] { 3, 0x1F, 1, 2 }, new byte[] { 1, BinaryProtocol.RESYNC });
+		assertTrue(BinaryProtocol.decode(in, command));
+		assertEquals(Command.UNKNOWN, command.opcode);
+		assertTrue(BinaryProtocol.decode(in, command));
+		assertEquals(Command.RESYNC, command.opcode);
+	}
+
+	private void assertMalformed(ByteBuffer in) {
+		try {
+			BinaryProtocol.decode(in, command);
+			fail("Decoded " + command.opcode + " from a malformed frame");
+		} catch (IllegalArgumentException e) {
+			// Expected, the connection is closed
+		}
+	}
+
+	private static ByteBuffer frames(byte[]... frames) {
+		ByteBuffer in = ByteBuffer.allocate(64);
+		for (byte[] frame : frames) {
+			in.put(frame);
+		}
+		in.flip();
+		return in;
+	}
+}
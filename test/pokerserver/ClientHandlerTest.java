@@ -0,0 +1,116 @@
+package pokerserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClientHandlerTest {
+	private ServerSocket listener;
+	private Socket client;
+	private Socket accepted;
+
+	@Before
+	public void connect() throws IOException {
+		listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		client = new Socket(InetAddress.getLoopbackAddress(), listener.getLocalPort());
+		client.setSoTimeout(5000);
+		accepted = listener.accept();
+	}
+
+	@After
+	public void disconnect() throws IOException {
+		client.close();
+		accepted.close();
+		listener.close();
+	}
+
+	@Test
+	public void closeWithFullQueueUnderDrop() throws IOException {
+		ClientHandler handler = newHandler(SlowConsumerPolicy.DROP);
+		for (int i = 0; i < OutboundQueue.DEFAULT_CAPACITY; i++) {
+			handler.send("LINE " + i);
+		}
+		// Dropped, the queue is full
+		handler.send("LINE late");
+		handler.close();
+		start(handler);
+
+		List<String> lines = readUntilClosed();
+		assertEquals(OutboundQueue.DEFAULT_CAPACITY, lines.size());
+		assertEquals("LINE " + (OutboundQueue.DEFAULT_CAPACITY - 1), lines.get(lines.size() - 1));
+	}
+
+	@Test
+	public void closeWithFullQueueUnderResync() throws IOException {
+		ClientHandler handler = newHandler(SlowConsumerPolicy.RESYNC);
+		handler.setSnapshot(() -> "SNAPSHOT");
+		for (int i = 0; i < OutboundQueue.DEFAULT_CAPACITY - 1; i++) {
+			handler.send("LINE " + i);
+		}
+		handler.send("HOLE_CARDS AS KD");
+		handler.close();
+		// Ignored once closing, rather than resyncing away the hole cards
+		handler.send("LINE late");
+		start(handler);
+
+		List<String> lines = readUntilClosed();
+		assertEquals(OutboundQueue.DEFAULT_CAPACITY, lines.size());
+		assertEquals("HOLE_CARDS AS KD", lines.get(lines.size() - 1));
+	}
+
+	@Test
+	public void closeWithEmptyQueueWakesWriter() throws IOException {
+		ClientHandler handler = newHandler(SlowConsumerPolicy.DROP);
+		start(handler);
+		handler.send("REFUSED");
+		handler.close();
+
+		List<String> lines = readUntilClosed();
+		assertEquals(1, lines.size());
+		assertEquals("REFUSED", lines.get(0));
+	}
+
+	private ClientHandler newHandler(SlowConsumerPolicy policy) {
+		ServerConfig config = new ServerConfig();
+		config.transport = PokerServer.Transport.BLOCKING;
+		config.slowConsumerPolicy = policy;
+		return new ClientHandler(new PokerServer(config, new ServerLog()), accepted);
+	}
+
+	// The reader thread starts the writer, which drains what was queued before
+	private static void start(ClientHandler handler) {
+		Thread thread = new Thread(handler, "client-test");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private List<String> readUntilClosed() throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+		List<String> lines = new ArrayList<>();
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				lines.add(line);
+			}
+		} catch (SocketTimeoutException e) {
+			fail("Socket still open after " + lines.size() + " lines");
+		}
+		assertNull(in.readLine());
+		return lines;
+	}
+}
@@ -0,0 +1,47 @@
+package pokerserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ClientSessionTest {
+	private final PokerServer server = new PokerServer(new ServerConfig(), new ServerLog());
+
+	@Test
+	public void reconnectNeedsTheToken() {
+		RecordingConnection first = new RecordingConnection();
+		ClientSession session = join(first, "alice");
+		String[] assigned = first.lines.get(0).split(" ");
+		assertEquals("ASSIGNED", assigned[0]);
+		String token = assigned[2];
+		session.onDisconnect();
+
+		// The ID alone, or with a wrong token, does not get the held seat
+		RecordingConnection withoutToken = new RecordingConnection();
+		join(withoutToken, "alice");
+		assertEquals("DUPLICATE_ID", withoutToken.last());
+		assertTrue(withoutToken.closed);
+		RecordingConnection wrongToken = new RecordingConnection();
+		join(wrongToken, "alice 0123456789abcdef0123456789abcdef");
+		assertEquals("DUPLICATE_ID", wrongToken.last());
+
+		RecordingConnection back = new RecordingConnection();
+		join(back, "alice " + token);
+		String[] reassigned = back.lines.get(0).split(" ");
+		assertEquals("ASSIGNED", reassigned[0]);
+		assertEquals(assigned[1], reassigned[1]);
+		assertFalse(back.closed);
+		// Each seat comes with a new token
+		assertNotEquals(token, reassigned[2]);
+		assertFalse(server.getSessions().checkToken("alice", token));
+	}
+
+	private ClientSession join(RecordingConnection connection, String line) {
+		ClientSession session = new ClientSession(server, connection);
+		session.onLine(line);
+		return session;
+	}
+}
@@ -0,0 +1,38 @@
+package pokerserver;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CommandTest {
+	private final Command command = new Command();
+
+	@Test
+	public void parsesActions() {
+		assertAction("ACTION FOLD", ActionType.FOLD, 0);
+		assertAction("ACTION RAISE 20", ActionType.RAISE, 20);
+		assertAction("ACTION RAISE   20  ", ActionType.RAISE, 20);
+		assertAction("ACTION RAISE " + Command.MAX_AMOUNT, ActionType.RAISE, Command.MAX_AMOUNT);
+	}
+
+	@Test
+	public void rejectsMalformedAmounts() {
+		assertUnknown("ACTION RAISE 2 0");
+		assertUnknown("ACTION RAISE20");
+		assertUnknown("ACTION RAISE -20");
+		assertUnknown("ACTION RAISE 2x");
+		assertUnknown("ACTION RAISE " + (Command.MAX_AMOUNT + 1));
+		assertUnknown("ACTION RAISE 99999999999");
+	}
+
+	private void assertAction(String line, ActionType type, int amount) {
+		command.parseLine(line);
+		assertEquals(line, Command.ACTION, command.opcode);
+		assertEquals(line, type, command.action);
+		assertEquals(line, amount, command.amount);
+	}
+
+	private void assertUnknown(String line) {
+		assertEquals(line, Command.UNKNOWN, command.parseLine(line).opcode);
+	}
+}
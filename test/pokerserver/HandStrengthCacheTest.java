@@ -0,0 +1,58 @@
+package pokerserver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class HandStrengthCacheTest {
+
+	@Test
+	public void localSetFillsBeforeEvicting() {
+		checkSetFillsBeforeEvicting(HandStrengthCache.local(HandStrengthCache.WAYS));
+	}
+
+	@Test
+	public void concurrentSetFillsBeforeEvicting() {
+		checkSetFillsBeforeEvicting(HandStrengthCache.concurrent(HandStrengthCache.WAYS));
+	}
+
+	@Test
+	public void strengthsMatchTheEvaluator() {
+		HandStrengthCache cache = HandStrengthCache.local(64);
+		Deck deck = new Deck(RandomSource.splittable(new SplittableRandom(3)));
+		long[] hands = new long[256];
+		for (int i = 0; i < hands.length; i++) {
+			deck.shuffle();
+			for (int n = 0; n < 7; n++) {
+				hands[i] |= CardSet.bitOf(deck.dealIndex());
+			}
+		}
+		for (int round = 0; round < 4; round++) {
+			for (long hand : hands) {
+				assertEquals(SevenCardEvaluator.evaluate(hand), cache.getStrength(hand));
+			}
+		}
+	}
+
+	// One set, so every hand competes for the same slots
+	private static void checkSetFillsBeforeEvicting(HandStrengthCache cache) {
+		assertEquals(HandStrengthCache.WAYS, cache.getCapacity());
+		long[] hands = new long[HandStrengthCache.WAYS];
+		for (int i = 0; i < hands.length; i++) {
+			hands[i] = CardSet.bitOf(i) | CardSet.bitOf(13 + i) | CardSet.bitOf(26 + i) | CardSet.bitOf(39 + i)
+					| CardSet.bitOf(4 + i) | CardSet.bitOf(17 + i) | CardSet.bitOf(30 + i);
+			cache.getStrength(hands[i]);
+			// Hits set the reference bits the clock would skip
+			for (int j = 0; j <= i; j++) {
+				cache.getStrength(hands[j]);
+			}
+		}
+		assertEquals(HandStrengthCache.WAYS, cache.getMisses());
+		for (long hand : hands) {
+			cache.getStrength(hand);
+		}
+		assertEquals(HandStrengthCache.WAYS, cache.getMisses());
+	}
+}
@@ -0,0 +1,37 @@
+package pokerserver;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * A client connection that keeps what is sent to it, for tests that drive a
+ * {@link ClientSession} or a table without a transport.
+ */
+class RecordingConnection implements ClientConnection {
+	final List<String> lines = new CopyOnWriteArrayList<>();
+	volatile boolean closed;
+
+	@Override
+	public void send(OutboundMessage message) {
+		lines.add(message.getText());
+	}
+
+	@Override
+	public boolean enableBinary() {
+		return false;
+	}
+
+	@Override
+	public void setSnapshot(Supplier<String> snapshot) {
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+	}
+
+	String last() {
+		return lines.isEmpty() ? null : lines.get(lines.size() - 1);
+	}
+}
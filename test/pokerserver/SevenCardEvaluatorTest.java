@@ -0,0 +1,47 @@
+package pokerserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class SevenCardEvaluatorTest {
+
+	@Test
+	public void evaluateAllMatchesOneEvaluationPerHand() {
+		Deck deck = new Deck(RandomSource.splittable(new SplittableRandom(7)));
+		for (int round = 0; round < 20_000; round++) {
+			int players = 2 + round % 8;
+			deck.shuffle();
+			long[] hands = new long[players];
+			for (int p = 0; p < players; p++) {
+				hands[p] = CardSet.bitOf(deck.dealIndex()) | CardSet.bitOf(deck.dealIndex());
+			}
+			long board = 0;
+			for (int n = 0; n < 5; n++) {
+				board |= CardSet.bitOf(deck.dealIndex());
+			}
+
+			int[] expected = new int[players];
+			int best = -1;
+			for (int p = 0; p < players; p++) {
+				expected[p] = SevenCardEvaluator.evaluate(hands[p] | board);
+				best = Math.max(best, expected[p]);
+			}
+			int[] strengths = new int[players];
+			int[] winners = new int[players];
+			int winnerCount = SevenCardEvaluator.evaluateAll(board, hands, strengths, winners);
+
+			assertArrayEquals(expected, strengths);
+			int w = 0;
+			for (int p = 0; p < players; p++) {
+				if (expected[p] == best) {
+					assertEquals(p, winners[w++]);
+				}
+			}
+			assertEquals(w, winnerCount);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package pokerserver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+public class SpectatorHubTest {
+
+	@Test
+	public void resyncKeepsTheSpectatorInItsGroup() {
+		ManualExecutor executor = new ManualExecutor();
+		SpectatorHub hub = new SpectatorHub(executor, null, 0);
+		RecordingConnection spectator = new RecordingConnection();
+		hub.attach(spectator, "SNAPSHOT 0");
+		for (int i = 1; i < SpectatorHub.GROUP_SIZE; i++) {
+			hub.attach(new RecordingConnection(), "SNAPSHOT 0");
+		}
+		executor.runNewestFirst();
+
+		hub.publish(new OutboundMessage("STATE 1 POT 10"));
+		hub.resync(spectator, "SNAPSHOT 1");
+		// Someone else joins the full group right after the resync
+		RecordingConnection visitor = new RecordingConnection();
+		hub.attach(visitor, "SNAPSHOT 1");
+		hub.publish(new OutboundMessage("STATE 2 POT 20"));
+		// A group drained later than another must not show the spectator an older delta after the snapshot
+		executor.runNewestFirst();
+
+		assertEquals(Arrays.asList("SNAPSHOT 0", "STATE 1 POT 10", "SNAPSHOT 1", "STATE 2 POT 20"), spectator.lines);
+		assertEquals(Arrays.asList("SNAPSHOT 1", "STATE 2 POT 20"), visitor.lines);
+		assertEquals(SpectatorHub.GROUP_SIZE + 1, hub.getSpectatorCount());
+	}
+
+	@Test
+	public void resyncOfUnknownConnectionIsIgnored() {
+		ManualExecutor executor = new ManualExecutor();
+		SpectatorHub hub = new SpectatorHub(executor, null, 0);
+		RecordingConnection stranger = new RecordingConnection();
+		hub.resync(stranger, "SNAPSHOT 0");
+		executor.runNewestFirst();
+		assertEquals(0, stranger.lines.size());
+		assertEquals(0, hub.getSpectatorCount());
+	}
+
+	// Runs the group drain tasks only when asked, in the least convenient order
+	private static final class ManualExecutor implements Executor {
+		private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+		void runNewestFirst() {
+			Runnable task;
+			while ((task = tasks.pollLast()) != null) {
+				task.run();
+			}
+		}
+	}
+}